@@ -0,0 +1,355 @@
+package at.jku.chess.saksanturilas;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import at.jku.chess.saksanturilas.board.Board;
+import at.jku.chess.saksanturilas.board.ChessException;
+import at.jku.chess.saksanturilas.board.GameCursor;
+import at.jku.chess.saksanturilas.board.GameRecord;
+import at.jku.chess.saksanturilas.board.Figure;
+import at.jku.chess.saksanturilas.board.Position;
+import at.jku.chess.saksanturilas.move.HundredPlyRemisMove;
+import at.jku.chess.saksanturilas.move.Move;
+import at.jku.chess.saksanturilas.move.PackedMove;
+import at.jku.chess.saksanturilas.move.RemisMove;
+
+public class BoardTest {
+	private static final String POSITION = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+	private Board board;
+
+	@Before
+	public void setUp() throws Exception {
+		board = new Board();
+	}
+
+	@Test
+	public final void testInvalidPosition() {
+		final String[] invalid = { "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNX w KQkq - 0 1",
+				"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR x KQkq - 0 1",
+				"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQxq - 0 1",
+				"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq z9 0 1",
+				"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq e4 0 1",
+				"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq e 0 1",
+				"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - -1 1",
+				"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - x 1" };
+
+		board.setPosition(POSITION);
+		final String before = board.toString();
+		final long hash = board.getHash();
+		for (String fen : invalid) {
+			try {
+				board.setPosition(fen);
+				fail("accepted " + fen);
+			} catch (ChessException e) {
+				// the board must be left as it was
+			}
+			assertEquals(fen, before, board.toString());
+			assertEquals(fen, hash, board.getHash());
+		}
+
+		// without a king the position cannot be set up, the board is reset
+		try {
+			board.setPosition("8/8/8/8/8/8/8/4K3 w - - 0 1");
+			fail("accepted a position without black king");
+		} catch (ChessException e) {
+			// expected
+		}
+		assertEquals(new Board().toString(), board.toString());
+		assertEquals(new Board().getHash(), board.getHash());
+	}
+
+	@Test
+	public final void testThreefoldRepetition() {
+		final String[] knights = { "g1f3", "g8f6", "f3g1", "f6g8" };
+
+		// the start occurs the second time
+		play(knights);
+		assertFalse(board.isThreefoldRepetition());
+		// and the third time
+		play(knights);
+		assertTrue(board.isThreefoldRepetition());
+		assertTrue(containsRemis(Move.REMIS_UNREJECTABLE));
+
+		// only the current board counts
+		play("e2e4");
+		assertFalse(board.isThreefoldRepetition());
+		assertFalse(containsRemis(Move.REMIS_UNREJECTABLE));
+	}
+
+	@Test
+	public final void testRepetitionAfterPawnMoveOrHit() {
+		// the start occurs twice, then a pawn move starts a new window
+		play("g1f3", "g8f6", "f3g1", "f6g8", "e2e3", "d7d6");
+		play("g1f3", "g8f6", "f3g1", "f6g8");
+		assertFalse(board.isThreefoldRepetition());
+		play("g1f3", "g8f6", "f3g1", "f6g8");
+		assertTrue(board.isThreefoldRepetition());
+
+		// a hit starts a new window too
+		play("f1a6", "b8a6");
+		play("g1f3", "g8f6", "f3g1", "f6g8");
+		assertFalse(board.isThreefoldRepetition());
+		play("g1f3", "g8f6", "f3g1", "f6g8");
+		assertTrue(board.isThreefoldRepetition());
+	}
+
+	@Test
+	public final void testRepetitionWindow() {
+		// the positions 1, 2, 1, 2, 1: the current one occurred three times
+		final GameRecord record = new GameRecord();
+		record.reset(1);
+		for (int i = 0; i < 4; i++)
+			record.addMove(0, 0, i, i % 2 == 0 ? 2 : 1);
+
+		assertTrue(record.isRepeated(3, 4));
+		assertTrue(record.isRepeated(2, 2));
+		// the first position lies before the last hit or pawn move
+		assertFalse(record.isRepeated(3, 3));
+		assertFalse(record.isRepeated(2, 1));
+	}
+
+	@Test
+	public final void testIsLegal() {
+		final Random random = new Random(17);
+		for (int game = 0; game < 20; game++) {
+			if (game < Perft.POSITIONS.length)
+				board.setPosition((String) Perft.POSITIONS[game][0]);
+			else
+				board.reset();
+
+			for (int ply = 0; ply < 60 && board.getResult() == 0; ply++) {
+				final List<Move> valid = board.getValidMoves(board.getTurn());
+				checkIsLegal(valid, random);
+				if (valid.isEmpty())
+					break;
+				Move move = valid.get(random.nextInt(valid.size()));
+				if (move.getRemis() == Move.NO_REMIS)
+					board.executeMove(move, true);
+			}
+		}
+
+		// after 99 plies remis cannot be offered but claimed
+		board.setPosition("4k3/8/8/8/8/8/8/R3K3 w - - 99 80");
+		assertFalse(board.isLegal(new RemisMove()));
+		assertTrue(board.isLegal(new HundredPlyRemisMove()));
+		checkIsLegal(board.getValidMoves(board.getTurn()), random);
+
+		// an offer can only be answered
+		board.reset();
+		board.executeMove(new RemisMove(), true);
+		checkIsLegal(board.getValidMoves(board.getTurn()), random);
+		assertTrue(board.isLegal(new RemisMove(false)));
+	}
+
+	@Test
+	public final void testEncodeRoundTrip() {
+		final Random random = new Random(20);
+		final Board decoded = new Board();
+		for (int game = 0; game < 20; game++) {
+			if (game < Perft.POSITIONS.length)
+				board.setPosition((String) Perft.POSITIONS[game][0]);
+			else
+				board.reset();
+
+			for (int ply = 0; ply < 80 && board.getResult() == 0; ply++) {
+				final byte[] bytes = encode(board);
+				decoded.decode(ByteBuffer.wrap(bytes));
+				assertEquals(board.getHash(), decoded.getHash());
+				assertArrayEquals(bytes, encode(decoded));
+
+				final List<Move> valid = board.getValidMoves(board.getTurn());
+				Move move = valid.get(random.nextInt(valid.size()));
+				if (move.getRemis() == Move.NO_REMIS)
+					board.executeMove(move, true);
+			}
+		}
+	}
+
+	@Test
+	public final void testInvalidEncoding() {
+		board.setPosition(POSITION);
+		final byte[] valid = encode(board);
+		board.reset();
+		final String before = board.toString();
+		final long hash = board.getHash();
+
+		final byte[][] invalid = { Arrays.copyOf(valid, Board.ENCODED_SIZE - 1),
+				valid.clone(), valid.clone(), valid.clone(), valid.clone() };
+		// an en-passant field on the fourth rank
+		invalid[1][Board.ENCODED_SIZE - 3] = 1 + 28;
+		// an en-passant field beyond the board
+		invalid[2][Board.ENCODED_SIZE - 3] = 1 + 64;
+		// a negative number of plies
+		invalid[3][Board.ENCODED_SIZE - 2] = (byte) 0x80;
+		// unknown flags
+		invalid[4][Board.ENCODED_SIZE - 4] |= 32;
+		for (int i = 0; i < invalid.length; i++) {
+			try {
+				board.decode(ByteBuffer.wrap(invalid[i]));
+				fail("accepted encoding " + i);
+			} catch (ChessException e) {
+				// the board must be left as it was
+			}
+			assertEquals(before, board.toString());
+			assertEquals(hash, board.getHash());
+		}
+	}
+
+	@Test
+	public final void testGameCursor() {
+		final Random random = new Random(22);
+		for (int game = 0; game < 6; game++) {
+			if (game < Perft.POSITIONS.length)
+				board.setPosition((String) Perft.POSITIONS[game][0]);
+			else
+				board.reset();
+			final GameCursor cursor = new GameCursor(board);
+
+			for (int ply = 0; ply < 120 && board.getResult() == 0; ply++) {
+				final List<Move> valid = board.getValidMoves(board.getTurn());
+				if (valid.isEmpty())
+					break;
+				Move move = valid.get(random.nextInt(valid.size()));
+				if (move.getRemis() == Move.NO_REMIS)
+					board.executeMove(move, true);
+				// the game changes behind the cursor, i.e. by an undo
+				if (ply % 40 == 39 && board.getRecord().countMoves() >= 2)
+					board.undo();
+				if (ply % 10 == 0)
+					checkCursor(cursor, random);
+			}
+			checkCursor(cursor, random);
+		}
+	}
+
+	/**
+	 * Checks that exactly the valid moves are legal: the valid moves, the
+	 * moves of each figure to each field, random encoded moves and the remis
+	 * moves.
+	 */
+	private void checkIsLegal(List<Move> valid, Random random) {
+		final Set<Integer> packed = new HashSet<Integer>();
+		for (Move m : valid) {
+			if (m.getRemis() == Move.NO_REMIS)
+				packed.add(m.toPacked());
+			assertTrue(m.toString(), board.isLegal(m));
+		}
+
+		final byte[] figures = board.getFigures();
+		for (int source = 0; source < 64; source++) {
+			if (figures[source] == Figure.EMPTY)
+				continue;
+			for (int destination = 0; destination < 64; destination++) {
+				Move m = new Move(board, figures[source], source, destination);
+				assertEquals(m.toString(), packed.contains(m.toPacked()), board.isLegal(m));
+			}
+		}
+
+		final byte[] types = { Figure.WHITE_PAWN, Figure.WHITE_KNIGHT, Figure.WHITE_QUEEN,
+				Figure.WHITE_KING, Figure.BLACK_PAWN, Figure.BLACK_ROOK, Figure.BLACK_BISHOP };
+		for (int i = 0; i < 200; i++) {
+			final byte type = types[random.nextInt(types.length)];
+			final int source = random.nextInt(64);
+			final int destination = random.nextInt(64);
+			int move;
+			switch (random.nextInt(3)) {
+			case 0:
+				move = PackedMove.create(type, source, destination);
+				break;
+			case 1:
+				move = PackedMove.createHit(type, source, destination);
+				break;
+			default:
+				move = PackedMove.createEnPassant(type, source, destination);
+			}
+			if (random.nextBoolean())
+				move = PackedMove.withNewFigureType(move, types[random.nextInt(types.length)]);
+			Move m = new Move(move);
+			assertEquals(m.toString(), packed.contains(move), board.isLegal(m));
+		}
+
+		final Move[] remis = { new RemisMove(), new RemisMove(true), new RemisMove(false),
+				new HundredPlyRemisMove() };
+		for (Move m : remis)
+			assertEquals(m.toString(), containsRemis(m.getRemis()), board.isLegal(m));
+	}
+
+	/**
+	 * Compares the positions of the cursor with the ones replayed from the
+	 * start of the game.
+	 */
+	private void checkCursor(GameCursor cursor, Random random) {
+		final GameRecord record = board.getRecord();
+		final int countMoves = record.countMoves();
+		final Position[] replayed = new Position[countMoves + 1];
+		replayed[0] = new Position(record.getCheckpoint(0));
+		for (int i = 0; i < countMoves; i++) {
+			replayed[i + 1] = new Position(replayed[i]);
+			replayed[i + 1].makeMove(record.getMove(i));
+		}
+		assertEquals(board.getHash(), replayed[countMoves].getHash());
+
+		for (int i = 0; i < 30; i++) {
+			final int target = random.nextInt(countMoves + 1);
+			checkPosition(replayed[target], cursor.seek(target));
+			assertEquals(target, cursor.getMove());
+			if (target < countMoves)
+				checkPosition(replayed[target + 1], cursor.forward());
+			else if (target > 0)
+				checkPosition(replayed[target - 1], cursor.backward());
+		}
+		for (int i = countMoves; i >= 0; i--)
+			checkPosition(replayed[i], cursor.seek(i));
+		for (int i = 0; i < countMoves; i++)
+			checkPosition(replayed[i + 1], cursor.forward());
+		for (int i = countMoves; i > 0; i--)
+			checkPosition(replayed[i - 1], cursor.backward());
+	}
+
+	private static void checkPosition(Position expected, Position actual) {
+		assertEquals(expected.toString(), actual.toString());
+		assertEquals(expected.getHash(), actual.getHash());
+		assertEquals(expected.getTurn(), actual.getTurn());
+	}
+
+	/**
+	 * Executes moves given by their fields, i.e. <tt>"e2e4"</tt>.
+	 */
+	private void play(String... moves) {
+		for (String name : moves) {
+			final int source = (name.charAt(0) - 'a') + ((name.charAt(1) - '1') << 3);
+			final int destination = (name.charAt(2) - 'a') + ((name.charAt(3) - '1') << 3);
+			Move move = null;
+			for (Move m : board.getValidMoves(board.getTurn()))
+				if (m.getRemis() == Move.NO_REMIS && m.getSource() == source
+						&& m.getDestination() == destination)
+					move = m;
+			assertNotNull(move);
+			board.executeMove(move, true);
+		}
+	}
+
+	private static byte[] encode(Board board) {
+		final ByteBuffer buffer = ByteBuffer.allocate(Board.ENCODED_SIZE);
+		board.encode(buffer);
+		return buffer.array();
+	}
+
+	private boolean containsRemis(byte remis) {
+		for (Move m : board.getValidMoves(board.getTurn()))
+			if (m.getRemis() == remis)
+				return true;
+		return false;
+	}
+}
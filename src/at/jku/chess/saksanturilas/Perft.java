@@ -0,0 +1,275 @@
+package at.jku.chess.saksanturilas;
+
+import java.io.PrintStream;
+
+import at.jku.chess.saksanturilas.board.Board;
+import at.jku.chess.saksanturilas.board.ChessUtil;
+import at.jku.chess.saksanturilas.board.Position;
+import at.jku.chess.saksanturilas.move.Move;
+import at.jku.chess.saksanturilas.move.MoveList;
+
+/**
+ * Counts the leaves of the tree of all valid moves up to a given depth
+ * (perft). The counts of well known positions are used to prove that the move
+ * generation is correct, the nodes per second measure its speed. Remis moves
+ * are not counted.
+ *
+ * Usage: <tt>Perft [maxDepth [threads [hashMB]]]</tt> runs all reference
+ * positions, <tt>Perft "fen" depth [threads [hashMB]]</tt> prints the count
+ * of each move of a single position (divide).
+ *
+ * @author Fabian Jordan (0855941)
+ * @author Wolfgang Kuellinger (0955711)
+ *
+ */
+public class Perft {
+	/**
+	 * Reference positions: the position in FEN and the expected counts for
+	 * depth 1, 2, ...
+	 */
+	public static final Object[][] POSITIONS = {
+			{ "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+					new long[] { 20, 400, 8902, 197281, 4865609, 119060324 } },
+			{ "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+					new long[] { 48, 2039, 97862, 4085603, 193690690 } },
+			{ "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+					new long[] { 14, 191, 2812, 43238, 674624, 11030083 } },
+			{ "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+					new long[] { 6, 264, 9467, 422333, 15833292 } },
+			{ "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+					new long[] { 44, 1486, 62379, 2103487, 89941194 } },
+			{ "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+					new long[] { 46, 2079, 89890, 3894594, 164075551 } } };
+
+	/** The deepest search a thread is prepared for */
+	private static final int MAX_DEPTH = 32;
+	/** The smallest remaining depth whose counts are stored in the table */
+	private static final int MIN_TABLE_DEPTH = 3;
+
+	private final int threads;
+	/**
+	 * Two entries per slot: the hash of the position XOR the data and the
+	 * data (count and depth), so a slot torn by concurrent writes never
+	 * verifies
+	 */
+	private final long[] table;
+	private final int mask;
+
+	/**
+	 * @param threads
+	 *            the number of threads the moves at the root are split among
+	 * @param hashMB
+	 *            the size of the hash table in megabytes, 0 for none (see
+	 *            {@link ChessUtil#getHashSlots(int)})
+	 */
+	public Perft(int threads, int hashMB) {
+		this.threads = Math.max(1, threads);
+		if (hashMB != 0) {
+			int slots = ChessUtil.getHashSlots(hashMB);
+			table = new long[2 * slots];
+			mask = slots - 1;
+		} else {
+			table = null;
+			mask = 0;
+		}
+	}
+
+	/**
+	 * Counts the leaves of all valid moves of the player to move.
+	 *
+	 * @param board
+	 *            the position, it is left unchanged
+	 * @param depth
+	 *            the number of plies (at least 1)
+	 * @return the number of leaves
+	 */
+	public long perft(Position board, int depth) {
+		long nodes = 0;
+		for (long n : divide(board, depth))
+			nodes += n;
+		return nodes;
+	}
+
+	/**
+	 * Counts the leaves below each valid move of the player to move. The moves
+	 * are split among the threads.
+	 *
+	 * @param board
+	 *            the position, it is left unchanged
+	 * @param depth
+	 *            the number of plies (at least 1)
+	 * @return the number of leaves per move, in the order of
+	 *         {@link ChessUtil#generateMoves(Position, byte, MoveList)}
+	 */
+	public long[] divide(Position board, int depth) {
+		final MoveList moves = new MoveList();
+		ChessUtil.generateMoves(board, board.getTurn(), moves);
+		final long[] counts = new long[moves.size()];
+
+		final Worker[] workers = new Worker[Math.min(threads, moves.size())];
+		for (int i = 0; i < workers.length; i++) {
+			workers[i] = new Worker(new Position(board), moves, counts, i,
+					workers.length, depth);
+			workers[i].start();
+		}
+		for (Worker w : workers) {
+			try {
+				w.join();
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * Counts the leaves below the current position recursively. At the last
+	 * ply the moves are only counted, not made (bulk counting).
+	 */
+	private long perft(Position board, int depth, MoveList[] lists) {
+		// positions near the leaves are cheaper to count than to look up
+		final boolean useTable = table != null && depth >= MIN_TABLE_DEPTH;
+		final long hash = board.getHash();
+		if (useTable) {
+			int slot = (int) (hash & mask) << 1;
+			long data = table[slot + 1];
+			if ((table[slot] ^ data) == hash && (data & 63) == depth)
+				return data >>> 6;
+		}
+
+		final MoveList moves = lists[depth - 1];
+		moves.clear();
+		ChessUtil.generateMoves(board, board.getTurn(), moves);
+		if (depth == 1)
+			return moves.size();
+
+		long nodes = 0;
+		for (int i = 0; i < moves.size(); i++) {
+			int move = moves.get(i);
+			long undo = board.makeMove(move);
+			nodes += perft(board, depth - 1, lists);
+			board.unmakeMove(move, undo);
+		}
+
+		if (useTable) {
+			int slot = (int) (hash & mask) << 1;
+			long data = (nodes << 6) | depth;
+			table[slot] = hash ^ data;
+			table[slot + 1] = data;
+		}
+		return nodes;
+	}
+
+	/**
+	 * Prints the count of each move and the total.
+	 *
+	 * @param board
+	 *            the position
+	 * @param depth
+	 *            the number of plies
+	 * @param out
+	 *            the stream to print to
+	 * @return the number of leaves
+	 */
+	public long printDivide(Position board, int depth, PrintStream out) {
+		final MoveList moves = new MoveList();
+		ChessUtil.generateMoves(board, board.getTurn(), moves);
+
+		final long time = System.nanoTime();
+		final long[] counts = divide(board, depth);
+		final long nanos = System.nanoTime() - time;
+
+		long nodes = 0;
+		for (int i = 0; i < counts.length; i++) {
+			out.printf("%-12s %12d\n", new Move(moves.get(i)), counts[i]);
+			nodes += counts[i];
+		}
+		out.printf("%d moves, %d nodes, %d ms, %d nodes/s\n", counts.length, nodes,
+				nanos / 1000000, nodes * 1000000000L / Math.max(1, nanos));
+		return nodes;
+	}
+
+	public static void main(String[] args) {
+		final int threads = Runtime.getRuntime().availableProcessors();
+		final Board board = new Board();
+
+		if (args.length > 0 && args[0].indexOf('/') >= 0) {
+			board.setPosition(args[0]);
+			Perft perft = new Perft(args.length > 2 ? Integer.parseInt(args[2]) : threads,
+					args.length > 3 ? Integer.parseInt(args[3]) : 0);
+			perft.printDivide(board, args.length > 1 ? Integer.parseInt(args[1]) : 1, System.out);
+			return;
+		}
+
+		final int maxDepth = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+		final Perft perft = new Perft(args.length > 1 ? Integer.parseInt(args[1]) : threads,
+				args.length > 2 ? Integer.parseInt(args[2]) : 0);
+		boolean ok = true;
+		long totalNodes = 0;
+		long totalNanos = 0;
+
+		for (Object[] position : POSITIONS) {
+			final String fen = (String) position[0];
+			final long[] expected = (long[]) position[1];
+			board.setPosition(fen);
+			System.out.println(fen);
+
+			for (int depth = 1; depth <= Math.min(maxDepth, expected.length); depth++) {
+				long time = System.nanoTime();
+				long nodes = perft.perft(board, depth);
+				long nanos = System.nanoTime() - time;
+				totalNodes += nodes;
+				totalNanos += nanos;
+
+				boolean correct = nodes == expected[depth - 1];
+				ok &= correct;
+				System.out.printf("  depth %d: %12d %s %8d ms %12d nodes/s\n", depth, nodes,
+						correct ? "ok   " : "WRONG", nanos / 1000000,
+						nodes * 1000000000L / Math.max(1, nanos));
+			}
+		}
+		System.out.printf("%s, %d nodes, %d nodes/s\n", ok ? "all counts correct"
+				: "COUNTS WRONG", totalNodes, totalNodes * 1000000000L / Math.max(1, totalNanos));
+		if (!ok)
+			System.exit(1);
+	}
+
+	/**
+	 * Counts the leaves below every <tt>step</tt>th move of the root.
+	 */
+	private class Worker extends Thread {
+		private final Position board;
+		private final MoveList moves;
+		private final long[] counts;
+		private final int first;
+		private final int step;
+		private final int depth;
+
+		public Worker(Position board, MoveList moves, long[] counts, int first, int step,
+				int depth) {
+			this.board = board;
+			this.moves = moves;
+			this.counts = counts;
+			this.first = first;
+			this.step = step;
+			this.depth = depth;
+		}
+
+		@Override
+		public void run() {
+			final MoveList[] lists = new MoveList[MAX_DEPTH];
+			for (int i = 0; i < lists.length; i++)
+				lists[i] = new MoveList();
+
+			for (int i = first; i < moves.size(); i += step) {
+				if (depth == 1) {
+					counts[i] = 1;
+					continue;
+				}
+				long undo = board.makeMove(moves.get(i));
+				counts[i] = perft(board, depth - 1, lists);
+				board.unmakeMove(moves.get(i), undo);
+			}
+		}
+	}
+}
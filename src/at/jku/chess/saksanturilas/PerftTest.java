@@ -0,0 +1,50 @@
+package at.jku.chess.saksanturilas;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import at.jku.chess.saksanturilas.board.Board;
+
+public class PerftTest {
+	/** Keeps the test fast, deeper counts are checked by running Perft */
+	private static final long MAX_NODES = 1000000;
+
+	private Board board;
+
+	@Before
+	public void setUp() throws Exception {
+		board = new Board();
+	}
+
+	@Test
+	public final void testReferencePositions() {
+		final Perft perft = new Perft(2, 0);
+
+		for (Object[] position : Perft.POSITIONS) {
+			final long[] expected = (long[]) position[1];
+			board.setPosition((String) position[0]);
+			final String before = board.toString();
+			final long hash = board.getHash();
+
+			for (int depth = 1; depth <= expected.length && expected[depth - 1] <= MAX_NODES; depth++) {
+				assertEquals(position[0] + " depth " + depth, expected[depth - 1],
+						perft.perft(board, depth));
+			}
+			assertEquals("Perft changed the board", before, board.toString());
+			assertEquals("Perft changed the hash", hash, board.getHash());
+		}
+	}
+
+	@Test
+	public final void testHashTable() {
+		final Perft perft = new Perft(1, 4);
+		final Object[] position = Perft.POSITIONS[1];
+		board.setPosition((String) position[0]);
+
+		assertEquals(((long[]) position[1])[3], perft.perft(board, 4));
+		// the second run is answered by the table
+		assertEquals(((long[]) position[1])[3], perft.perft(board, 4));
+	}
+}
@@ -10,6 +10,7 @@ import org.junit.Test;
 import at.jku.chess.saksanturilas.board.Board;
 import at.jku.chess.saksanturilas.board.ChessUtil;
 import at.jku.chess.saksanturilas.board.Figure;
+import at.jku.chess.saksanturilas.move.MoveList;
 
 public class TimeTest {
 	private static final int TURNS = 5000;
@@ -29,8 +30,7 @@ public class TimeTest {
 	
 	@Test
 	public final void testIsCovered() {
-		// isCovered (QuadCore): ~ 20000 ns
-		// TODO: isCovered is quite expensive ... use with caution
+		// isCovered: a lookup in the attack map, well below 1000 ns
 		time = System.nanoTime();
 
 		for (int i = 0; i < TURNS; i++) {
@@ -45,12 +45,13 @@ public class TimeTest {
 
 	@Test
 	public final void testGetValidMoves() {
-		// getValidMoves (QuadCore): > 900000 ns
-		// TODO: getValidMoves is fucking expensive! Only use when necessary!
+		// getValidMoves: a few microseconds if the moves are generated, the
+		// moves of the current position are cached, so the colors alternate
+		// to generate them every time
 		time = System.nanoTime();
 
 		for (int i = 0; i < TURNS; i++) {
-			board.getValidMoves(color);
+			board.getValidMoves(i % 2 == 0 ? color : ChessUtil.flipColor(color));
 		}
 
 		estimate = ((System.nanoTime() - time) / TURNS);
@@ -59,6 +60,23 @@ public class TimeTest {
 		assertTrue("Warning: getValidMoves() takes too much time!", HIDE_TIMELIMITS || estimate < 250000);
 	}
 	
+	@Test
+	public final void testGenerateMoves() {
+		// generateMoves fills a reused MoveList, no Move objects are allocated
+		final MoveList moves = new MoveList();
+		time = System.nanoTime();
+
+		for (int i = 0; i < TURNS; i++) {
+			moves.clear();
+			ChessUtil.generateMoves(board, color, moves);
+		}
+
+		estimate = ((System.nanoTime() - time) / TURNS);
+		System.out.printf("%20s: %10d ns\n", "generateMoves", estimate);
+
+		assertTrue("Warning: generateMoves() takes too much time!", HIDE_TIMELIMITS || estimate < 20000);
+	}
+	
 	@Test
 	public final void testIsHitable(){
 		// isHitable (QuadCore): starts at 500 ns, often calculated it drops too
@@ -76,6 +94,21 @@ public class TimeTest {
 		assertTrue("Warning: isHitable() takes too much time!", HIDE_TIMELIMITS || estimate < 700);
 	}
 	
+	@Test
+	public final void testCountMobility() {
+		// countMobility only reads the attack maps, nothing is allocated
+		time = System.nanoTime();
+
+		for (int i = 0; i < TURNS; i++) {
+			ChessUtil.countMobility(board, color);
+		}
+
+		estimate = ((System.nanoTime() - time) / TURNS);
+		System.out.printf("%20s: %10d ns\n", "countMobility", estimate);
+
+		assertTrue("Warning: countMobility() takes too much time!", HIDE_TIMELIMITS || estimate < 5000);
+	}
+	
 	@Test
 	public final void testCloneIncompletely(){
 		// cloneIncompletely (QuadCore): 300 - 400 ns
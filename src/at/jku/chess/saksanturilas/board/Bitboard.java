@@ -0,0 +1,295 @@
+package at.jku.chess.saksanturilas.board;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Precomputed attack tables for the 64-bit masks of a board. Bit <tt>i</tt>
+ * of a mask stands for index <tt>i</tt> of the board (a1 = 0, h1 = 7, a8 =
+ * 56). Attacks of sliding figures are looked up in magic bitboard tables
+ * which are calculated once when the class is loaded.
+ *
+ * @author Fabian Jordan (0855941)
+ * @author Wolfgang Kuellinger (0955711)
+ *
+ */
+public class Bitboard {
+	public static final long FILE_A = 0x0101010101010101L;
+	public static final long FILE_H = FILE_A << 7;
+	public static final long RANK_1 = 0xFFL;
+	public static final long RANK_8 = RANK_1 << 56;
+
+	/** The fields a knight at a given index attacks */
+	public static final long[] KNIGHT_ATTACKS = new long[64];
+	/** The fields a king at a given index attacks */
+	public static final long[] KING_ATTACKS = new long[64];
+	/** The fields a pawn at a given index attacks, [0] for WHITE, [1] for BLACK */
+	public static final long[][] PAWN_ATTACKS = new long[2][64];
+	/** The field one step ahead of a pawn, [0] for WHITE, [1] for BLACK */
+	public static final long[][] PAWN_STEPS = new long[2][64];
+	/**
+	 * The field two steps ahead of a pawn on its initial row (0 on all other
+	 * rows), [0] for WHITE, [1] for BLACK
+	 */
+	public static final long[][] PAWN_DOUBLE_STEPS = new long[2][64];
+
+	/**
+	 * The fields strictly between two indices on a common row, column or
+	 * diagonal, 0 if the indices are not on a common line
+	 */
+	public static final long[][] BETWEEN = new long[64][64];
+	/**
+	 * The whole row, column or diagonal through two indices (from edge to
+	 * edge), 0 if the indices are not on a common line
+	 */
+	public static final long[][] LINE = new long[64][64];
+
+	/** The number of masks per color (one for each type of figure) */
+	public static final int TYPES = 6;
+
+	/** Seed for the search of the magic numbers, keeps startup deterministic */
+	private static final long MAGIC_SEED = 0x5AC5A27L;
+
+	private static final long[] ROOK_MASKS = new long[64];
+	private static final long[] ROOK_MAGICS = new long[64];
+	private static final int[] ROOK_SHIFTS = new int[64];
+	private static final long[][] ROOK_TABLE = new long[64][];
+
+	private static final long[] BISHOP_MASKS = new long[64];
+	private static final long[] BISHOP_MAGICS = new long[64];
+	private static final int[] BISHOP_SHIFTS = new int[64];
+	private static final long[][] BISHOP_TABLE = new long[64][];
+
+	private static final int[][] ROOK_DIRECTIONS = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } };
+	private static final int[][] BISHOP_DIRECTIONS = { { 1, 1 }, { 1, -1 }, { -1, 1 }, { -1, -1 } };
+	private static final int[][] KNIGHT_STEPS = { { 1, 2 }, { 2, 1 }, { 2, -1 }, { 1, -2 },
+			{ -1, -2 }, { -2, -1 }, { -2, 1 }, { -1, 2 } };
+	private static final int[][] KING_STEPS = { { 1, 0 }, { 1, 1 }, { 0, 1 }, { -1, 1 },
+			{ -1, 0 }, { -1, -1 }, { 0, -1 }, { 1, -1 } };
+
+	static {
+		for (int index = 0; index < 64; index++) {
+			KNIGHT_ATTACKS[index] = stepAttacks(index, KNIGHT_STEPS);
+			KING_ATTACKS[index] = stepAttacks(index, KING_STEPS);
+			PAWN_ATTACKS[0][index] = stepAttacks(index, new int[][] { { -1, 1 }, { 1, 1 } });
+			PAWN_ATTACKS[1][index] = stepAttacks(index, new int[][] { { -1, -1 }, { 1, -1 } });
+			PAWN_STEPS[0][index] = stepAttacks(index, new int[][] { { 0, 1 } });
+			PAWN_STEPS[1][index] = stepAttacks(index, new int[][] { { 0, -1 } });
+			if (index >> 3 == 1)
+				PAWN_DOUBLE_STEPS[0][index] = bit(index + 16);
+			if (index >> 3 == 6)
+				PAWN_DOUBLE_STEPS[1][index] = bit(index - 16);
+		}
+
+		for (int from = 0; from < 64; from++) {
+			for (int to = 0; to < 64; to++) {
+				if (from == to)
+					continue;
+				if ((slidingAttacks(from, 0, ROOK_DIRECTIONS) & bit(to)) != 0) {
+					BETWEEN[from][to] = slidingAttacks(from, bit(to), ROOK_DIRECTIONS)
+							& slidingAttacks(to, bit(from), ROOK_DIRECTIONS);
+					LINE[from][to] = (slidingAttacks(from, 0, ROOK_DIRECTIONS) & slidingAttacks(
+							to, 0, ROOK_DIRECTIONS)) | bit(from) | bit(to);
+				} else if ((slidingAttacks(from, 0, BISHOP_DIRECTIONS) & bit(to)) != 0) {
+					BETWEEN[from][to] = slidingAttacks(from, bit(to), BISHOP_DIRECTIONS)
+							& slidingAttacks(to, bit(from), BISHOP_DIRECTIONS);
+					LINE[from][to] = (slidingAttacks(from, 0, BISHOP_DIRECTIONS) & slidingAttacks(
+							to, 0, BISHOP_DIRECTIONS)) | bit(from) | bit(to);
+				}
+			}
+		}
+
+		final Random random = new Random(MAGIC_SEED);
+		for (int index = 0; index < 64; index++) {
+			initMagic(index, ROOK_DIRECTIONS, ROOK_MASKS, ROOK_MAGICS, ROOK_SHIFTS, ROOK_TABLE,
+					random);
+			initMagic(index, BISHOP_DIRECTIONS, BISHOP_MASKS, BISHOP_MAGICS, BISHOP_SHIFTS,
+					BISHOP_TABLE, random);
+		}
+	}
+
+	/**
+	 * Gives back the mask with only the given index set.
+	 *
+	 * @param index
+	 *            the index on the board
+	 * @return the mask of the given index
+	 */
+	public static long bit(int index) {
+		return 1L << index;
+	}
+
+	/**
+	 * Calculates the fields a rook at <tt>index</tt> attacks.
+	 *
+	 * @param index
+	 *            the index of the rook
+	 * @param occupied
+	 *            mask of all occupied fields of the board
+	 * @return all fields the rook attacks, including the first occupied field
+	 *         in each direction
+	 */
+	public static long rookAttacks(int index, long occupied) {
+		return ROOK_TABLE[index][(int) (((occupied & ROOK_MASKS[index]) * ROOK_MAGICS[index]) >>> ROOK_SHIFTS[index])];
+	}
+
+	/**
+	 * Calculates the fields a bishop at <tt>index</tt> attacks.
+	 *
+	 * @param index
+	 *            the index of the bishop
+	 * @param occupied
+	 *            mask of all occupied fields of the board
+	 * @return all fields the bishop attacks, including the first occupied
+	 *         field in each direction
+	 */
+	public static long bishopAttacks(int index, long occupied) {
+		return BISHOP_TABLE[index][(int) (((occupied & BISHOP_MASKS[index]) * BISHOP_MAGICS[index]) >>> BISHOP_SHIFTS[index])];
+	}
+
+	/**
+	 * Calculates the fields a queen at <tt>index</tt> attacks.
+	 *
+	 * @param index
+	 *            the index of the queen
+	 * @param occupied
+	 *            mask of all occupied fields of the board
+	 * @return all fields the queen attacks
+	 */
+	public static long queenAttacks(int index, long occupied) {
+		return rookAttacks(index, occupied) | bishopAttacks(index, occupied);
+	}
+
+	/**
+	 * Maps a figure to the position of its mask in an array of 12 masks. The
+	 * white figures are at 0..5, the black ones at 6..11.
+	 *
+	 * @param figure
+	 *            the figure (not <tt>EMPTY</tt>)
+	 * @return the index of the mask of <tt>figure</tt>
+	 */
+	public static int pieceIndex(byte figure) {
+		return Integer.numberOfTrailingZeros(figure & 63) + colorIndex(figure) * TYPES;
+	}
+
+	/**
+	 * Maps a color (or a figure of that color) to 0 for WHITE and 1 for BLACK.
+	 *
+	 * @param color
+	 *            the color or a figure
+	 * @return 0 for WHITE, 1 for BLACK
+	 */
+	public static int colorIndex(byte color) {
+		return (color & Figure.BLACK) >> 6;
+	}
+
+	/**
+	 * Calculates the fields reachable by single steps (i.e. knight or king).
+	 */
+	private static long stepAttacks(int index, int[][] steps) {
+		final int row = index >> 3;
+		final int col = index & 7;
+		long attacks = 0;
+
+		for (int[] step : steps) {
+			int c = col + step[0];
+			int r = row + step[1];
+			if (c >= 0 && c < 8 && r >= 0 && r < 8)
+				attacks |= bit((r << 3) + c);
+		}
+		return attacks;
+	}
+
+	/**
+	 * Walks the rays of a sliding figure until the edge or the first occupied
+	 * field. Only used to fill the tables.
+	 */
+	private static long slidingAttacks(int index, long occupied, int[][] directions) {
+		final int row = index >> 3;
+		final int col = index & 7;
+		long attacks = 0;
+
+		for (int[] d : directions) {
+			int c = col + d[0];
+			int r = row + d[1];
+			while (c >= 0 && c < 8 && r >= 0 && r < 8) {
+				long b = bit((r << 3) + c);
+				attacks |= b;
+				if ((occupied & b) != 0)
+					break;
+				c += d[0];
+				r += d[1];
+			}
+		}
+		return attacks;
+	}
+
+	/**
+	 * Calculates the relevant occupancy mask of a sliding figure, i.e. the
+	 * rays without the edges of the board.
+	 */
+	private static long relevantMask(int index, int[][] directions) {
+		final int row = index >> 3;
+		final int col = index & 7;
+		long mask = 0;
+
+		for (int[] d : directions) {
+			int c = col + d[0];
+			int r = row + d[1];
+			while (c + d[0] >= 0 && c + d[0] < 8 && r + d[1] >= 0 && r + d[1] < 8) {
+				mask |= bit((r << 3) + c);
+				c += d[0];
+				r += d[1];
+			}
+		}
+		return mask;
+	}
+
+	/**
+	 * Searches a magic number for the given field and fills its attack table.
+	 */
+	private static void initMagic(int index, int[][] directions, long[] masks, long[] magics,
+			int[] shifts, long[][] tables, Random random) {
+		final long mask = relevantMask(index, directions);
+		final int bits = Long.bitCount(mask);
+		final int size = 1 << bits;
+		final long[] occupancies = new long[size];
+		final long[] attacks = new long[size];
+
+		// enumerate all subsets of the mask (carry-rippler)
+		long subset = 0;
+		for (int i = 0; i < size; i++) {
+			occupancies[i] = subset;
+			attacks[i] = slidingAttacks(index, subset, directions);
+			subset = (subset - mask) & mask;
+		}
+
+		final long[] table = new long[size];
+		final int shift = 64 - bits;
+		long magic;
+		boolean found;
+
+		do {
+			magic = random.nextLong() & random.nextLong() & random.nextLong();
+			if (Long.bitCount((mask * magic) & 0xFF00000000000000L) < 6)
+				continue;
+
+			Arrays.fill(table, 0);
+			found = true;
+			for (int i = 0; found && i < size; i++) {
+				int key = (int) ((occupancies[i] * magic) >>> shift);
+				if (table[key] == 0)
+					table[key] = attacks[i];
+				else if (table[key] != attacks[i])
+					found = false;
+			}
+			if (found)
+				break;
+		} while (true);
+
+		masks[index] = mask;
+		magics[index] = magic;
+		shifts[index] = shift;
+		tables[index] = table;
+	}
+}
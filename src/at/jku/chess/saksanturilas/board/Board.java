@@ -3,121 +3,273 @@ package at.jku.chess.saksanturilas.board;
 import static at.jku.chess.saksanturilas.board.ChessUtil.*;
 import static at.jku.chess.saksanturilas.board.Figure.*;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Stack;
 
 import at.jku.chess.saksanturilas.move.HundredPlyRemisMove;
 import at.jku.chess.saksanturilas.move.Move;
+import at.jku.chess.saksanturilas.move.MoveList;
+import at.jku.chess.saksanturilas.move.PackedMove;
 import at.jku.chess.saksanturilas.move.RemisMove;
 import at.jku.chess.saksanturilas.move.ThreeEqualBoardsRemisMove;
 
 /**
- * Represents a board and it's current state of figures and possibilities
+ * Represents a board and it's current state of figures and possibilities. The
+ * position itself is kept by {@link Position}, the board adds the game: the
+ * record of the plies, the result, remis offers and the listeners.
  * 
  * @author Fabian Jordan (0855941)
  * @author Wolfgang Kuellinger (0955711)
  * 
  */
-public class Board {
-	/** The complete board and its figures */
-	private byte[] figures;
-
-	/** Indicates the possibility of WHITE to perform the rochade to a */
-	boolean whiteCanRochadeA;
-	/** Indicates the possibility of WHITE to perform the rochade to h */
-	boolean whiteCanRochadeH;
-	/** Indicates the possibility of BLACK to perform the rochade to a */
-	boolean blackCanRochadeA;
-	/** Indicates the possibility of BLACK to perform the rochade to h */
-	boolean blackCanRochadeH;
-
-	/** Indicates whether WHITE is in check */
-	boolean whiteInCheck;
-	/** Indicates whether BLACK is in check */
-	boolean blackInCheck;
-	/** Gives the current position of the white king */
-	int indexWhiteKing;
-	/** Gives the current position of the black king */
-	int indexBlackKing;
-
-	/** The number of white bishops on white fields */
-	public int whiteBishopsOnWhite;
-	/** The number of white bishops on black fields */
-	public int whiteBishopsOnBlack;
-	/** The number of black bishops on white fields */
-	public int blackBishopsOnWhite;
-	/** The number of black bishops on black fields */
-	public int blackBishopsOnBlack;
-
+public class Board extends Position {
 	/** Gives the current state of this board */
 	private byte result;
 	/** True if the opponent is offering remis */
 	private boolean offeringRemis;
 	/** Indicates the plies made since the last hit or pawn move */
 	private int countPlies;
-	/** The local history of moves */
-	private Stack<Move> history;
-	/** Stores the boards of a game. */
-	private Stack<Integer> historyOfBoards;
-	/** Action Listeners for the Swing UI. */
-	private final List<BoardListener> listeners;
+	/**
+	 * The plies executed finally (see {@link #executeMove(Move, boolean)}) and
+	 * the hashes of all boards of the game, created when a copy needs it first
+	 * (see {@link #getRecord()})
+	 */
+	private GameRecord record;
+	/** Action Listeners for the Swing UI, <tt>null</tt> if there are none */
+	private List<BoardListener> listeners;
+	/**
+	 * Reused by {@link #hasLegalMove(byte)} and {@link #isLegal(int)}, created
+	 * when it is needed first
+	 */
+	private MoveList scratchMoves;
+	/**
+	 * The result of the last {@link #getValidMoves(byte)}, <tt>null</tt> if
+	 * the board changed since then
+	 */
+	private List<Move> validMoves;
+	/** The hash of the position <tt>validMoves</tt> belongs to */
+	private long validMovesHash;
+	/** The color <tt>validMoves</tt> belong to */
+	private byte validMovesColor;
+	/** The result of the position <tt>validMoves</tt> belong to */
+	private byte validMovesResult;
+
+	/** The letters of the figures in FEN, ordered by their bit in the type */
+	private static final String FEN_FIGURES = "PRNBQK";
+	/** The bytes of a position written by {@link #encode(ByteBuffer)} */
+	public static final int ENCODED_SIZE = 28;
+	/** The bytes holding the figures (two per byte) in an encoded position */
+	private static final int ENCODED_FIGURES = 16;
 
 	public Board() {
-		figures = new byte[64];
-		listeners = new ArrayList<BoardListener>();
-		reset();
+		record = new GameRecord();
+		resetGame();
+	}
+
+	/**
+	 * Creates a copy of the position and the state of another board, but not
+	 * of its record and listeners (see {@link #cloneIncompletely()}). Most
+	 * copies are thrown away after a few moves, so the record is only created
+	 * if it is used.
+	 */
+	private Board(Board other) {
+		super(other);
+		result = other.result;
+		offeringRemis = other.offeringRemis;
 	}
 
 	/** Resets the situation at the board. */
+	@Override
 	public void reset() {
-		figures[0] = WHITE_ROOK;
-		figures[1] = WHITE_KNIGHT;
-		figures[2] = WHITE_BISHOP;
-		figures[3] = WHITE_QUEEN;
-		figures[4] = WHITE_KING;
-		figures[5] = WHITE_BISHOP;
-		figures[6] = WHITE_KNIGHT;
-		figures[7] = WHITE_ROOK;
-		for (int i = 8; i < 16; i++)
-			figures[i] = WHITE_PAWN;
-
-		figures[56] = BLACK_ROOK;
-		figures[57] = BLACK_KNIGHT;
-		figures[58] = BLACK_BISHOP;
-		figures[59] = BLACK_QUEEN;
-		figures[60] = BLACK_KING;
-		figures[61] = BLACK_BISHOP;
-		figures[62] = BLACK_KNIGHT;
-		figures[63] = BLACK_ROOK;
-		for (int i = 48; i < 56; i++)
-			figures[i] = BLACK_PAWN;
-
-		for (int i = 16; i < 48; i++)
-			figures[i] = EMPTY;
-
-		whiteCanRochadeA = true;
-		whiteCanRochadeH = true;
-		blackCanRochadeA = true;
-		blackCanRochadeH = true;
-
-		whiteInCheck = false;
-		blackInCheck = false;
-		indexWhiteKing = 4;
-		indexBlackKing = 60;
-
-		whiteBishopsOnWhite = 1;
-		whiteBishopsOnBlack = 1;
-		blackBishopsOnBlack = 1;
-		blackBishopsOnWhite = 1;
-
-		history = new Stack<Move>();
-		historyOfBoards = new Stack<Integer>();
-		historyOfBoards.push(Arrays.hashCode(figures));
+		super.reset();
+		resetGame();
+	}
+
+	/**
+	 * Starts a new game in the current position.
+	 */
+	private void resetGame() {
+		if (record != null) {
+			record.reset(hash);
+			record.saveCheckpoint(this);
+		}
 		countPlies = 0;
 		offeringRemis = false;
 		result = NO_MATE;
+		validMoves = null;
+	}
+
+	/**
+	 * Sets up a position given in Forsyth-Edwards Notation (FEN), i.e.
+	 * <tt>rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1</tt>.
+	 * The plies since the last hit or pawn move are taken over if they are
+	 * given, the history starts anew.
+	 * 
+	 * @param fen
+	 *            the position
+	 * @throws ChessException
+	 *             if the FEN is not valid, the board is unchanged then (or
+	 *             reset if a king is missing)
+	 */
+	public void setPosition(String fen) {
+		final String[] fields = fen.trim().split("\\s+");
+		if (fields.length < 4)
+			throw new ChessException("Not a valid FEN: '%s'.", fen);
+
+		// everything is parsed and checked before the board is changed
+		final byte[] parsed = new byte[64];
+		int row = 7;
+		int col = 0;
+		for (char c : fields[0].toCharArray()) {
+			if (c == '/') {
+				row--;
+				col = 0;
+			} else if (c >= '1' && c <= '8') {
+				col += c - '0';
+			} else {
+				int type = FEN_FIGURES.indexOf(Character.toUpperCase(c));
+				if (type < 0 || row < 0 || col > 7)
+					throw new ChessException("Not a valid FEN: '%s'.", fen);
+				byte figure = (byte) (1 << type);
+				if (Character.isLowerCase(c))
+					figure |= BLACK;
+
+				parsed[(row << 3) + col++] = figure;
+			}
+		}
+
+		if (!fields[1].equals("w") && !fields[1].equals("b"))
+			throw new ChessException("Not a valid FEN: '%s'.", fen);
+		if (!fields[2].matches("-|K?Q?k?q?"))
+			throw new ChessException("Not a valid FEN: '%s'.", fen);
+		if (!fields[3].matches("-|[a-h][36]"))
+			throw new ChessException("Not a valid FEN: '%s'.", fen);
+		if (fields.length > 4 && !fields[4].matches("\\d{1,9}"))
+			throw new ChessException("Not a valid FEN: '%s'.", fen);
+
+		reset();
+		System.arraycopy(parsed, 0, figures, 0, 64);
+		turn = fields[1].equals("b") ? BLACK : WHITE;
+		whiteCanRochadeH = fields[2].indexOf('K') >= 0;
+		whiteCanRochadeA = fields[2].indexOf('Q') >= 0;
+		blackCanRochadeH = fields[2].indexOf('k') >= 0;
+		blackCanRochadeA = fields[2].indexOf('q') >= 0;
+		enPassant = fields[3].equals("-") ? -1 : (fields[3].charAt(0) - 'a')
+				+ ((fields[3].charAt(1) - '1') << 3);
+		countPlies = fields.length > 4 ? Integer.parseInt(fields[4]) : 0;
+
+		if (!setUpPosition())
+			throw new ChessException("Not a valid FEN: '%s'.", fen);
+	}
+
+	/**
+	 * Writes the position in a compact binary form (see
+	 * {@link #ENCODED_SIZE}): the mask of the occupied fields, the figures on
+	 * them (four bits each, see {@link Bitboard#pieceIndex(byte)}, unused
+	 * bits are zero), the player to move and the rochade flags, the en
+	 * passant field and the plies since the last hit or pawn move. Equal
+	 * positions give equal bytes. The record of the game, the result and
+	 * remis offers are not written.
+	 * 
+	 * @param buffer
+	 *            the buffer to write to, at least <tt>ENCODED_SIZE</tt> bytes
+	 *            remaining
+	 */
+	public void encode(ByteBuffer buffer) {
+		final long occupied = getOccupancy();
+		buffer.putLong(occupied);
+
+		long fields = occupied;
+		for (int i = 0; i < ENCODED_FIGURES; i++) {
+			int pair = 0;
+			for (int shift = 0; shift < 8 && fields != 0; shift += 4) {
+				pair |= Bitboard.pieceIndex(figures[Long.numberOfTrailingZeros(fields)]) << shift;
+				fields &= fields - 1;
+			}
+			buffer.put((byte) pair);
+		}
+
+		final int rochade = (whiteCanRochadeA ? 1 : 0) | (whiteCanRochadeH ? 2 : 0)
+				| (blackCanRochadeA ? 4 : 0) | (blackCanRochadeH ? 8 : 0);
+		buffer.put((byte) ((turn == BLACK ? 1 : 0) | (rochade << 1)));
+		buffer.put((byte) (enPassant + 1));
+		buffer.putShort((short) Math.min(countPlies, Short.MAX_VALUE));
+	}
+
+	/**
+	 * Sets up a position written by {@link #encode(ByteBuffer)}, the history
+	 * starts anew.
+	 * 
+	 * @param buffer
+	 *            the buffer to read <tt>ENCODED_SIZE</tt> bytes from
+	 * @throws ChessException
+	 *             if the bytes are not a valid position, the board is
+	 *             unchanged then (or reset if a king is missing)
+	 */
+	public void decode(ByteBuffer buffer) {
+		if (buffer.remaining() < ENCODED_SIZE)
+			throw new ChessException("Not a valid encoded position.");
+
+		// everything is read and checked before the board is changed
+		final byte[] decoded = new byte[64];
+		long fields = buffer.getLong();
+		boolean valid = Long.bitCount(fields) <= 2 * ENCODED_FIGURES;
+		for (int i = 0; i < ENCODED_FIGURES; i++) {
+			int pair = buffer.get();
+			for (int shift = 0; shift < 8 && fields != 0; shift += 4) {
+				int piece = (pair >>> shift) & 15;
+				valid &= piece < 2 * Bitboard.TYPES;
+				byte figure = (byte) (1 << (piece % Bitboard.TYPES));
+				if (piece >= Bitboard.TYPES)
+					figure |= BLACK;
+				decoded[Long.numberOfTrailingZeros(fields)] = figure;
+				fields &= fields - 1;
+			}
+		}
+		final int flags = buffer.get();
+		final int passant = buffer.get() - 1;
+		final int plies = buffer.getShort();
+
+		valid &= (flags & ~31) == 0 && plies >= 0;
+		valid &= passant == -1 || (passant >= 16 && passant < 24)
+				|| (passant >= 40 && passant < 48);
+		if (!valid)
+			throw new ChessException("Not a valid encoded position.");
+
+		reset();
+		System.arraycopy(decoded, 0, figures, 0, 64);
+		turn = (flags & 1) != 0 ? BLACK : WHITE;
+		whiteCanRochadeA = (flags & 2) != 0;
+		whiteCanRochadeH = (flags & 4) != 0;
+		blackCanRochadeA = (flags & 8) != 0;
+		blackCanRochadeH = (flags & 16) != 0;
+		enPassant = passant;
+		countPlies = plies;
+
+		if (!setUpPosition())
+			throw new ChessException("Not a valid encoded position.");
+	}
+
+	/**
+	 * Derives everything else from the figures and the state set up by
+	 * {@link #setPosition(String)} or {@link #decode(ByteBuffer)} and starts a
+	 * new game.
+	 * 
+	 * @return <tt>false</tt> if a king is missing, the board is reset then
+	 */
+	private boolean setUpPosition() {
+		final int plies = countPlies;
+		if (!setUp()) {
+			reset();
+			return false;
+		}
+		resetGame();
+		countPlies = plies;
+		fireBoardChanged();
+		return true;
 	}
 
 	/**
@@ -131,219 +283,155 @@ public class Board {
 	 *            executed.
 	 */
 	public void executeMove(Move move, boolean count) {
-		byte r = move.getRemis();
-		if (r != Move.NO_REMIS) {
-			// check for unrejectable remis offer
-			if (r == Move.REMIS_UNREJECTABLE || r == Move.REMIS_ACCEPT) {
-				result = REMIS;
-				return;
-			}
-			// check for usual remis offers
-			if (r == Move.REMIS_OFFER)
-				offeringRemis = true;
-			else
-				offeringRemis = false;
+		validMoves = null;
+		if (move.getRemis() != Move.NO_REMIS) {
+			if (count)
+				getRecord().addRemis(move.getRemis(), saveState(EMPTY), countPlies);
+			executeRemis(move.getRemis());
 			return;
 		}
 
-		final byte type = move.getType();
-		final int source = move.getSource();
-		final int destination = move.getDestination();
-		final int row = destination >> 3;
-		Move consequence = null;
-
 		// it is not allowed to hit the king
-		assert (!count || destination != indexBlackKing);
-		assert (!count || destination != indexWhiteKing);
-
-		// execute move
-		setFigure(source, EMPTY);
-		if (move.getHit() >= 0)
-			setFigure(move.getHit(), EMPTY);
-		setFigure(destination, type);
-
-		// if the move is finally executed permanently
-		if (count) {
-			// add current move to history
-			history.add(move);
-
-			// count ply if no hit and no pawn move was performed
-			if (move.isHit() || (move.getType() & 1) == 1) {
-				countPlies = 0;
-				historyOfBoards = new Stack<Integer>();
-			} else {
-				countPlies++;
-				historyOfBoards.push(Arrays.hashCode(figures));
-			}
+		assert (!count || move.getDestination() != indexBlackKing);
+		assert (!count || move.getDestination() != indexWhiteKing);
+
+		final int packed = move.toPacked();
+		if (!count) {
+			doMove(packed);
+			return;
 		}
 
-		// specify modifications by different figures
-		switch (type) {
-		case BLACK_KING:
-			indexBlackKing = destination;
-			if (blackCanRochadeA && destination == 58)
-				consequence = new Move(this, BLACK_ROOK, 56, 59);
-			else if (blackCanRochadeH && destination == 62)
-				consequence = new Move(this, BLACK_ROOK, 63, 61);
-
-			blackCanRochadeA = false;
-			blackCanRochadeH = false;
-			break;
-
-		case WHITE_KING:
-			indexWhiteKing = destination;
-
-			if (whiteCanRochadeA && destination == 2)
-				consequence = new Move(this, WHITE_ROOK, 0, 3);
-			else if (whiteCanRochadeH && destination == 6)
-				consequence = new Move(this, WHITE_ROOK, 7, 5);
-
-			whiteCanRochadeA = false;
-			whiteCanRochadeH = false;
-			break;
-
-		case WHITE_ROOK:
-			if (source == 0)
-				whiteCanRochadeA = false;
-			else if (source == 7)
-				whiteCanRochadeH = false;
-			break;
-
-		case BLACK_ROOK:
-			if (source == 56)
-				blackCanRochadeA = false;
-			else if (source == 63)
-				blackCanRochadeH = false;
-			break;
-
-		case WHITE_PAWN:
-			if (row == 7) {
-				setFigure(destination, move.getNewFigureType());
-
-				// update amount of white bishops
-				if (move.getNewFigureType() == WHITE_BISHOP) {
-					if (getColorOfField(destination) == WHITE)
-						whiteBishopsOnWhite++;
-					if (getColorOfField(destination) == BLACK)
-						whiteBishopsOnBlack++;
-				}
-			}
-			break;
-
-		case BLACK_PAWN:
-			if (row == 0) {
-				setFigure(destination, move.getNewFigureType());
-
-				// update amount of white bishops
-				if (move.getNewFigureType() == BLACK_BISHOP) {
-					if (getColorOfField(destination) == WHITE)
-						blackBishopsOnWhite++;
-					if (getColorOfField(destination) == BLACK)
-						blackBishopsOnBlack++;
-				}
-			}
-			break;
+		// the move is finally executed permanently
+		getRecord().saveCheckpoint(this);
+		final int plies = countPlies;
+		final long state = makeMove(packed);
 
-		default:
-		}
+		// count ply if no hit and no pawn move was performed
+		if (move.isHit() || (move.getType() & 1) == 1)
+			countPlies = 0;
+		else
+			countPlies++;
 
-		// check for figures that are hit
-		switch (figures[destination]) {
-		case WHITE_ROOK:
-			if (destination == 0)
-				whiteCanRochadeA = false;
-			if (destination == 7)
-				whiteCanRochadeH = false;
-			break;
-		case BLACK_ROOK:
-			if (destination == 56)
-				blackCanRochadeA = false;
-			if (destination == 63)
-				blackCanRochadeH = false;
-			break;
-		case WHITE_BISHOP:
-			if (getColorOfField(destination) == Figure.WHITE)
-				whiteBishopsOnWhite--;
-			if (getColorOfField(destination) == Figure.BLACK)
-				whiteBishopsOnBlack--;
-			break;
-		case BLACK_BISHOP:
-			if (getColorOfField(destination) == Figure.WHITE)
-				blackBishopsOnWhite--;
-			if (getColorOfField(destination) == Figure.BLACK)
-				blackBishopsOnBlack--;
-			break;
-
-		default:
-		}
+		// add current move to the record
+		record.addMove(packed, state, plies, hash);
+		fireBoardChanged();
+	}
 
-		// update status of check
-		whiteInCheck = isCovered(this, indexWhiteKing);
-		blackInCheck = isCovered(this, indexBlackKing);
+	/**
+	 * Checks whether the current board occurred (at least) three times. Only
+	 * the boards since the last hit or pawn move can be equal (see
+	 * {@link GameRecord#isRepeated(int, int)}).
+	 * 
+	 * @return <tt>true</tt> if remis can be claimed by the threefold
+	 *         repetition
+	 */
+	public boolean isThreefoldRepetition() {
+		// without a record no board was executed finally
+		return record != null && record.isRepeated(3, countPlies);
+	}
+
+	/**
+	 * Performs a move in place for looking-forward-issues. Unlike
+	 * <tt>executeMove(move, true)</tt> neither the history nor the listeners
+	 * are touched. The returned record has to be handed to
+	 * {@link #unmakeMove(Move, long)} to restore the board afterwards.
+	 * 
+	 * @param move
+	 *            the <tt>Move</tt> that is about to be executed
+	 * @return the record that is needed to take back the move
+	 */
+	public long makeMove(Move move) {
+		if (move.getRemis() == Move.NO_REMIS)
+			return makeMove(move.toPacked());
 
-		// perform consequence move (i.e. rook after rochade of the king)
-		if (consequence != null)
-			executeMove(consequence, false);
-		if (count)
-			fireBoardChanged();
+		final long undo = saveState(EMPTY);
+		executeRemis(move.getRemis());
+		return undo;
 	}
 
 	/**
-	 * Returns the check status on the board. Finds out whether the specified
-	 * color's king is in check or not.
+	 * Takes back a move that was performed by {@link #makeMove(Move)}. Moves
+	 * have to be taken back in the reverse order they were made.
 	 * 
-	 * @param color
-	 *            The color of the player.
-	 * @return <tt>true</tt> if king of player <tt>color</tt> is in danger
-	 *         (check).
+	 * @param move
+	 *            the <tt>Move</tt> that was executed last
+	 * @param undo
+	 *            the record returned by <tt>makeMove(move)</tt>
+	 */
+	public void unmakeMove(Move move, long undo) {
+		if (move.getRemis() == Move.NO_REMIS)
+			unmakeMove(move.toPacked(), undo);
+		else
+			restoreState(undo);
+	}
+
+	/**
+	 * Performs the offering, accepting and rejecting of remis.
+	 * 
+	 * @param remis
+	 *            the remis value of the move (not <tt>NO_REMIS</tt>)
 	 */
-	public boolean getCheck(byte color) {
-		if (color == Figure.WHITE)
-			return whiteInCheck;
-		if (color == Figure.BLACK)
-			return blackInCheck;
-		return false;
+	private void executeRemis(byte remis) {
+		hash ^= stateHash();
+		turn = flipColor(turn);
+		hash ^= stateHash();
+
+		// check for unrejectable remis offer
+		if (remis == Move.REMIS_UNREJECTABLE || remis == Move.REMIS_ACCEPT) {
+			result = REMIS;
+			return;
+		}
+		// check for usual remis offers
+		offeringRemis = remis == Move.REMIS_OFFER;
 	}
 
 	/**
-	 * Gets all possible moves for one player. Runs through all positions at the
-	 * board and gets valid moves.</br></br>
+	 * Gets all possible moves for one player. Runs through all fields occupied
+	 * by the player (see {@link #getOccupancy(byte)}) and gets valid moves.
+	 * Remis moves are added and the result is updated if there is no valid
+	 * move (see {@link #computeStatus()} for a query without side
+	 * effects).</br></br>
 	 * 
-	 * <i><b>Important</b>: Pretty expensive (more than 900000 nanoseconds on
-	 * QuadCore)!</i>
+	 * The list is kept until the board changes, so the UI and the players can
+	 * ask for the moves of the same position again without generating them.
+	 * It must not be modified.
 	 * 
 	 * @param color
 	 *            the color of the current player.
 	 * @return a list of possible moves for the player of color
 	 */
 	public List<Move> getValidMoves(byte color) {
-		List<Move> moves = new ArrayList<Move>();
+		if (validMoves != null && validMovesHash == hash && validMovesColor == color) {
+			if (validMoves.isEmpty())
+				result = validMovesResult;
+			return validMoves;
+		}
+
+		final List<Move> moves;
 		if (offeringRemis) {
+			moves = new ArrayList<Move>(2);
 			moves.add(new RemisMove(true));
 			moves.add(new RemisMove(false));
-			return moves;
+		} else {
+			moves = getValidMovesWithoutCache(color);
 		}
 
-		byte figure;
+		validMoves = Collections.unmodifiableList(moves);
+		validMovesHash = hash;
+		validMovesColor = color;
+		validMovesResult = result;
+		return validMoves;
+	}
 
-		for (byte i = 0; i < 64; i++) {
-			figure = figures[i];
-			if (figure != EMPTY && Figure.getColorFromType(figure) == color) {
-				moves.addAll(ChessUtil.getValidMoves(this, history, i));
-			}
-		}
+	/**
+	 * Generates the moves of the figures and adds the remis moves (see
+	 * {@link #getValidMoves(byte)}).
+	 */
+	private List<Move> getValidMovesWithoutCache(byte color) {
+		final List<Move> moves = getLegalMoves(color);
 
 		if (moves.isEmpty()) {
-			
-			if (blackInCheck)
-				result = BLACK_MATE;
-			else if (whiteInCheck)
-				result = WHITE_MATE;
-			else if (color == WHITE)
-				result = WHITE_STALEMATE;
-			else
-				result = BLACK_STALEMATE;
-
+			result = getResultWithoutMoves(color);
 		} else {
 			// 100 ply rule
 			if (countPlies >= 99)
@@ -351,12 +439,113 @@ public class Board {
 			else
 				moves.add(new RemisMove());
 
-			if (containsTriple(historyOfBoards))
+			if (isThreefoldRepetition())
 				moves.add(new ThreeEqualBoardsRemisMove());
 		}
 		return moves;
 	}
 
+	/**
+	 * Gets the moves of the figures of one player, without any remis moves
+	 * and without changing the board or its result.
+	 * 
+	 * @param color
+	 *            the color of the current player
+	 * @return a list of possible moves for the player of color
+	 */
+	public List<Move> getLegalMoves(byte color) {
+		final MoveList list = new MoveList();
+		ChessUtil.generateMoves(this, color, list);
+		return list.toMoves();
+	}
+
+	/**
+	 * Checks whether a move is valid for the player to move, i.e. for input
+	 * of a user or out of a recorded game. Only the moved figure is
+	 * generated and the safety of the king is checked by performing the move
+	 * once, so not all moves have to be generated.
+	 * 
+	 * @param move
+	 *            the move
+	 * @return <tt>true</tt> if <tt>move</tt> is one of
+	 *         {@link #getValidMoves(byte)}
+	 */
+	public boolean isLegal(Move move) {
+		final byte remis = move.getRemis();
+		if (offeringRemis)
+			return remis == Move.REMIS_ACCEPT || remis == Move.REMIS_REJECT;
+		if (remis == Move.NO_REMIS)
+			return isLegal(move.toPacked());
+
+		// the same rules as in getValidMovesWithoutCache
+		if (!hasLegalMove(turn))
+			return false;
+		if (remis == Move.REMIS_UNREJECTABLE)
+			return countPlies >= 99 || isThreefoldRepetition();
+		return remis == Move.REMIS_OFFER && countPlies < 99;
+	}
+
+	/**
+	 * Checks whether a move of a figure is valid for the player to move (see
+	 * {@link #isLegal(Move)}).
+	 * 
+	 * @param move
+	 *            the move encoded by {@link PackedMove}
+	 * @return <tt>true</tt> if <tt>move</tt> is valid
+	 */
+	public boolean isLegal(int move) {
+		return !offeringRemis && ChessUtil.isLegal(this, move, getScratchMoves());
+	}
+
+	/**
+	 * Checks whether a player has at least one valid move. The generation
+	 * stops at the first figure that can move.
+	 * 
+	 * @param color
+	 *            the color of the player
+	 * @return <tt>true</tt> if <tt>color</tt> is neither mate nor stalemate
+	 */
+	public boolean hasLegalMove(byte color) {
+		return ChessUtil.hasLegalMove(this, color, getScratchMoves());
+	}
+
+	/**
+	 * Calculates the state of the game without any side effects, i.e. without
+	 * generating all moves like {@link #getValidMoves(byte)} does.
+	 * 
+	 * @return the result if the game is already over (i.e. remis was
+	 *         accepted), mate or stalemate of the player to move or
+	 *         <tt>NO_MATE</tt>
+	 */
+	public byte computeStatus() {
+		if (result != NO_MATE)
+			return result;
+		if (offeringRemis)
+			return NO_MATE;
+		if (validMoves != null && validMovesHash == hash && validMovesColor == turn)
+			return validMoves.isEmpty() ? validMovesResult : NO_MATE;
+		if (hasLegalMove(turn))
+			return NO_MATE;
+		return getResultWithoutMoves(turn);
+	}
+
+	/**
+	 * Gives the result if a player can not move.
+	 * 
+	 * @param color
+	 *            the color of the player without valid moves
+	 * @return mate if the player is in check, stalemate otherwise
+	 */
+	private byte getResultWithoutMoves(byte color) {
+		if (blackInCheck)
+			return BLACK_MATE;
+		if (whiteInCheck)
+			return WHITE_MATE;
+		if (color == WHITE)
+			return WHITE_STALEMATE;
+		return BLACK_STALEMATE;
+	}
+
 	/**
 	 * Gives the current state of this board
 	 * 
@@ -367,33 +556,33 @@ public class Board {
 	}
 
 	/**
-	 * The complete battlefield and its figures
-	 * 
-	 * @return complete battlefield and its figures
+	 * @return the record of the finally executed plies
 	 */
-	public byte[] getFigures() {
-		return figures;
+	public GameRecord getRecord() {
+		if (record == null) {
+			// a copy starts its game in the current position
+			record = new GameRecord();
+			record.reset(hash);
+			record.saveCheckpoint(this);
+		}
+		return record;
 	}
 
-	/**
-	 * @return the history
-	 */
-	public Stack<Move> getHistory() {
-		return history;
+	private MoveList getScratchMoves() {
+		if (scratchMoves == null)
+			scratchMoves = new MoveList();
+		return scratchMoves;
 	}
 
 	/**
-	 * Builds new board with the same figure constellation and the indices of
-	 * the kings. All other values are not copied.
+	 * Builds new board with the same figure constellation and the state that
+	 * is stored by {@link #makeMove(Move)} (rochade, en passant, kings,
+	 * bishops and check). The history and the listeners are not copied.
 	 * 
 	 * @return incomplete copy of this board
 	 */
 	public Board cloneIncompletely() {
-		Board b = new Board();
-		b.figures = this.figures.clone();
-		b.indexBlackKing = this.indexBlackKing;
-		b.indexWhiteKing = this.indexWhiteKing;
-		return b;
+		return new Board(this);
 	}
 
 	/**
@@ -403,79 +592,72 @@ public class Board {
 	 *            the listener to be added
 	 */
 	public void addBoardListener(BoardListener boardListener) {
+		if (listeners == null)
+			listeners = new ArrayList<BoardListener>();
 		listeners.add(boardListener);
 	}
 
 	/**
-	 * Undo the last two plies.
+	 * Undo the last two plies (and the remis offers made after them). The
+	 * records stored by <tt>executeMove(move, true)</tt> are taken back, so the
+	 * game is not replayed.
 	 * 
 	 * @return the color of the player that performs the undo.
 	 */
 	public byte undo() {
-		assert (history.size() >= 2);
+		assert (getRecord().countMoves() >= 2);
 
 		// get color of the player that performs the undo
-		byte color = flipColor(history.peek().getColor());
+		byte color = flipColor(Figure.getColorFromType(PackedMove.getType(record
+				.getMove(record.countMoves() - 1))));
 
 		// perform undo
-		List<Move> tempHistory = history;
-		reset();
-		for (int i = 0; i < tempHistory.size() - 2; i++) {
-			executeMove(tempHistory.get(i), true);
+		int plies = 0;
+		while (plies < 2) {
+			final int last = record.size() - 1;
+			final int move = record.getPly(last);
+			if (move < 0) {
+				restoreState(record.getState(last));
+			} else {
+				unmakeMove(move, record.getState(last));
+				plies++;
+			}
+			countPlies = record.getCountPlies(last);
+			record.removeLast();
 		}
+		validMoves = null;
 		fireBoardChanged();
 
 		return color;
 	}
 
+	/**
+	 * Adds the result and the remis offer to the record of the position (see
+	 * {@link Position#saveState(byte)}).
+	 */
 	@Override
-	public String toString() {
-		byte figure;
-		StringBuffer sb = new StringBuffer();
-		sb.append("   ===========================================");
-		sb.append("\n");
-
-		for (int i = 7; i >= 0; i--) {
-			sb.append(" ");
-			sb.append(i + 1);
-			sb.append(" ||");
-			for (int j = 0; j <= 7; j++) {
-				figure = figures[(i << 3) + j];
-				sb.append(" ");
-				if (figure != EMPTY) {
-					sb.append(Figure.getFigureName(figure));
-				} else {
-					sb.append("  ");
-				}
-				sb.append(" |");
-			}
-			if (i > 0) {
-				sb.append("|\n --||----|----|----|----|----|----|----|----||\n");
-			}
-		}
-		sb.append("|\n   ===========================================\n");
-		sb.append("      a  | b  | c  | d  | e  | f  | g  | h");
-		return sb.toString();
+	long saveState(byte hitFigure) {
+		long undo = super.saveState(hitFigure);
+		undo |= (long) result << 48;
+		undo |= (offeringRemis ? 1L : 0) << 51;
+		return undo;
+	}
+
+	@Override
+	void restoreState(long undo) {
+		super.restoreState(undo);
+		result = (byte) ((undo >>> 48) & 7);
+		offeringRemis = (undo & (1L << 51)) != 0;
 	}
 
 	/**
 	 * Fires a notification to all listeners.
 	 */
 	private void fireBoardChanged() {
+		if (listeners == null)
+			return;
 		for (BoardListener l : listeners) {
 			l.boardChanged(this);
 		}
 	}
-
-	/**
-	 * Sets a position at the board to the given figure.
-	 * 
-	 * @param index
-	 *            the chosen index at the board
-	 * @param figure
-	 *            the figure that is inserted at this position
-	 */
-	private void setFigure(int index, byte figure) {
-		figures[index] = figure;
-	}
-}
\ No newline at end of file
+}
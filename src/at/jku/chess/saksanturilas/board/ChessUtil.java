@@ -2,13 +2,11 @@ package at.jku.chess.saksanturilas.board;
 
 import static at.jku.chess.saksanturilas.board.Figure.*;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Stack;
 
 import at.jku.chess.saksanturilas.move.Move;
+import at.jku.chess.saksanturilas.move.MoveList;
+import at.jku.chess.saksanturilas.move.PackedMove;
 
 public class ChessUtil {
 	/** Possible values for <tt>result</tt>. */
@@ -19,36 +17,33 @@ public class ChessUtil {
 	public static final byte WHITE_STALEMATE = 4;
 	public static final byte REMIS = 5;
 
+	/** The figures a pawn can be changed into, [0] for WHITE, [1] for BLACK */
+	private static final byte[][] CHANGEABLE_FIGURES = {
+			{ WHITE_BISHOP, WHITE_KNIGHT, WHITE_QUEEN, WHITE_ROOK },
+			{ BLACK_BISHOP, BLACK_KNIGHT, BLACK_QUEEN, BLACK_ROOK } };
+	/** The rows where pawns are changed into another figure */
+	private static final long LAST_ROWS = Bitboard.RANK_1 | Bitboard.RANK_8;
+	/** The most slots of a hash table, so <tt>2 * slots</tt> longs fit into an array */
+	private static final long MAX_HASH_SLOTS = 1L << 29;
+
 	/**
-	 * Adds a new move to a list of moves after checking whether this is
-	 * possible (i.e. the king is not covered afterwards)
+	 * Computes the size of a hash table with two <tt>long</tt>s (16 bytes) per
+	 * slot.
 	 * 
-	 * @param board
-	 *            the board
-	 * @param moves
-	 *            the current list of moves
-	 * @param move
-	 *            the move that is about to be added
-	 * @return <tt>true</tt> if <tt>move</tt> was added to <tt>moves</tt>.
-	 *         <tt>false</tt> if the king would be covered by opponent after
-	 *         performing this move.
+	 * @param megabytes
+	 *            the memory the table may use
+	 * @return the number of slots, the largest power of two that fits into
+	 *         <tt>megabytes</tt> and into an array of <tt>2 * slots</tt>
+	 *         longs
+	 * @throws IllegalArgumentException
+	 *             if not even one slot fits
 	 */
-	public static boolean addToMoves(Board board, List<Move> moves, Move move) {
-		// simulate the chosen move
-		Board b = board.cloneIncompletely();
-		b.executeMove(move, false);
-	
-		// if it would lead to own check, leave it!
-		if (b.whiteInCheck && Figure.isWhite(move.getType()))
-			return false;
-		if (b.blackInCheck && Figure.isBlack(move.getType()))
-			return false;
-	
-		// Otherwise it is possible
-		if (!moves.add(move))
-			throw new ChessException("Not able to add move '%s' to list of moves", move);
-	
-		return true;
+	public static int getHashSlots(int megabytes) {
+		final long slots = megabytes * (1L << 20) / 16;
+		if (slots < 1)
+			throw new IllegalArgumentException(String.format(
+					"A hash table of %d MB has no slot.", megabytes));
+		return (int) Long.highestOneBit(Math.min(slots, MAX_HASH_SLOTS));
 	}
 
 	/**
@@ -62,32 +57,6 @@ public class ChessUtil {
 		return Math.abs(a - b) < 0.000000000000001;
 	}
 
-	/**
-	 * Checks for three equal Objects in <tt>stack</tt>.
-	 * 
-	 * @param stack
-	 *            the stack in which is about to be tested for three equal
-	 *            objects.
-	 * @return true if stack contains three equal objects.
-	 */
-	public static boolean containsTriple(Stack<Integer> stack) {
-		Map<Integer, Integer> map = new HashMap<Integer, Integer>();
-		Integer tmp;
-	
-		for (Integer field : stack) {
-			tmp = map.remove(field);
-	
-			if (tmp != null) {
-				if (++tmp == 3)
-					return true;
-				map.put(field, tmp);
-			} else {
-				map.put(field, 1);
-			}
-		}
-		return false;
-	}
-
 	/**
 	 * Flips the color. Changes BLACK to WHITE and WHITE to BLACK
 	 * 
@@ -107,10 +76,8 @@ public class ChessUtil {
 	 * @return Figure.WHITE or Figure.BLACK
 	 */
 	public static byte getColorOfField(int index) {
-		int row = index / 8;
-		int col = index % 8;
-
-		if ((col + row) % 2 == 0)
+		// a1 (row + col even) is black
+		if ((((index >> 3) + index) & 1) == 0)
 			return Figure.BLACK;
 		return Figure.WHITE;
 	}
@@ -137,271 +104,719 @@ public class ChessUtil {
 	 * 
 	 * @param board
 	 *            the current board object
-	 * @param history
-	 *            the history of moves is important for calculation possible en
-	 *            passant hits
 	 * @param index
 	 *            the chosen index on the board
 	 * @return a list of possible moves for figure at <tt>board[index]</tt>
 	 */
-	public static List<Move> getValidMoves(Board board, Stack<Move> history, int index) {
-		final byte[] changableFiguresWhite = { WHITE_BISHOP, WHITE_KNIGHT, WHITE_QUEEN, WHITE_ROOK };
-		final byte[] changableFiguresBlack = { BLACK_BISHOP, BLACK_KNIGHT, BLACK_QUEEN, BLACK_ROOK };
+	public static List<Move> getValidMoves(Position board, int index) {
+		final byte color = Figure.getColorFromType(board.getFigures()[index]);
+		final MoveList moves = new MoveList();
+		generateMoves(board, index, getPinned(board, color),
+				getCheckMask(board, color, getCheckers(board, color)), moves);
+		return moves.toMoves();
+	}
 
-		final List<Move> moves = new ArrayList<Move>();
-		final byte[] figures = board.getFigures();
-		final byte curFigure = figures[index];
-		final byte curColor = Figure.getColorFromType(curFigure);
-		final int row = index >> 3;
-		final int col = index % 8;
-		Move move;
-
-		if (curFigure == WHITE_PAWN || curFigure == BLACK_PAWN) {
-			int iNextRow, iNextNextRow;
-			byte[] rows;
-			byte pawnBefore;
-			byte[] changeableFigures = null;
-
-			if (curFigure == WHITE_PAWN) {
-				iNextRow = index + 8;
-				iNextNextRow = index + 16;
-				rows = new byte[] { 0, 1, 2, 3, 4, 5, 6, 7 };
-				pawnBefore = BLACK_PAWN;
-				changeableFigures = changableFiguresWhite;
-			} else {
-				iNextRow = index - 8;
-				iNextNextRow = index - 16;
-				rows = new byte[] { 7, 6, 5, 4, 3, 2, 1, 0 };
-				pawnBefore = WHITE_PAWN;
-				changeableFigures = changableFiguresBlack;
-			}
+	/**
+	 * Generates all valid moves of one player into <tt>moves</tt>. Remis is
+	 * not part of the generated moves. If the player is in check, only the
+	 * evasions are generated (see {@link #generateEvasions(Position, byte, MoveList)}).
+	 * 
+	 * @param board
+	 *            the current board object
+	 * @param color
+	 *            the color of the current player
+	 * @param moves
+	 *            the list the encoded moves are appended to
+	 */
+	public static void generateMoves(Position board, byte color, MoveList moves) {
+		if (board.getCheck(color)) {
+			generateEvasions(board, color, moves);
+			return;
+		}
 
-			if (row == rows[1] && isFree(board, iNextRow) && isFree(board, iNextNextRow)) {
-				// initially: two steps at once
-				addToMoves(board, moves, new Move(board, curFigure, index, iNextNextRow));
-			} else if (row == rows[4] && history != null && history.size() > 0) {
-				// en passant
-				Move pastMove = history.peek();
-				if (pastMove.getType() == pawnBefore && pastMove.getSourceRow() == rows[6]
-						&& pastMove.getDestRow() == rows[4]) {
-
-					if (col < 7 && pastMove.getDestination() == index + 1) {
-						move = new Move(board, curFigure, index, iNextRow + 1);
-						move.setHit(index + 1);
-						addToMoves(board, moves, move);
-					} else if (col > 0 && pastMove.getDestination() == index - 1) {
-						move = new Move(board, curFigure, index, iNextRow - 1);
-						move.setHit(index - 1);
-						addToMoves(board, moves, move);
-					}
-				}
-			}
+		final long pinned = getPinned(board, color);
+		final long checkMask = getCheckMask(board, color, getCheckers(board, color));
+		long own = board.getOccupancy(color);
 
-			if (row == rows[6]) {
-				// change pawn to another figure at last row
-				if (isFree(board, iNextRow)) {
-					for (byte i = 0; i < 4; i++) {
-						move = new Move(board, curFigure, index, iNextRow);
-						move.setNewFigureType(changeableFigures[i]);
-						addToMoves(board, moves, move);
-					}
-				}
-				if (col > 0 && isHitable(board, curColor, iNextRow - 1)) {
-					for (byte i = 0; i < 4; i++) {
-						move = new Move(board, curFigure, index, iNextRow - 1);
-						move.setNewFigureType(changeableFigures[i]);
-						addToMoves(board, moves, move);
-					}
-				}
-				if (col < 7 && isHitable(board, curColor, iNextRow + 1)) {
-					for (byte i = 0; i < 4; i++) {
-						move = new Move(board, curFigure, index, iNextRow + 1);
-						move.setNewFigureType(changeableFigures[i]);
-						addToMoves(board, moves, move);
-					}
-				}
-
-			} else {
-				// usual hits
-				if (col < 7 && isHitable(board, curColor, iNextRow + 1)) {
-					addToMoves(board, moves, new Move(board, curFigure, index, iNextRow + 1));
-				}
-				if (col > 0 && isHitable(board, curColor, iNextRow - 1)) {
-					addToMoves(board, moves, new Move(board, curFigure, index, iNextRow - 1));
-				}
-
-				// usual single step
-				if (isFree(board, iNextRow)) {
-					addToMoves(board, moves, new Move(board, curFigure, index, iNextRow));
-				}
-			}
+		while (own != 0) {
+			int index = Long.numberOfTrailingZeros(own);
+			own &= own - 1;
+			generateMoves(board, index, pinned, checkMask, moves);
+		}
+	}
 
-		} else if (curFigure == WHITE_KNIGHT || curFigure == BLACK_KNIGHT) {
-			final byte[] indices = new byte[] { 6, 15, 17, 10, -6, -15, -17, -10 };
-			final int maxLeft = col > 2 ? 2 : col; // maxLeft = max(2, col)
-			final int maxRight = 7 - col > 2 ? 2 : 7 - col;
-			int tempIndex;
+	/**
+	 * Checks whether a player has at least one valid move. The figures are
+	 * generated one after another, starting with the king, until one of them
+	 * can move.
+	 * 
+	 * @param board
+	 *            the current board object
+	 * @param color
+	 *            the color of the player
+	 * @param scratch
+	 *            a list that is used for the generation, its content is lost
+	 * @return <tt>true</tt> if <tt>color</tt> can move
+	 */
+	public static boolean hasLegalMove(Position board, byte color, MoveList scratch) {
+		scratch.clear();
+		if (board.getCheck(color)) {
+			generateEvasions(board, color, scratch);
+			return !scratch.isEmpty();
+		}
 
-			assert (maxLeft < 3 && maxRight < 3);
+		final int king = board.getIndexOfKing(color);
+		generateMoves(board, king, 0, ~0L, scratch);
+		if (!scratch.isEmpty())
+			return true;
 
-			for (byte i = 0; i < 8; i++) {
-				tempIndex = index + indices[i];
-				if (isInInterval(tempIndex, index, maxLeft, maxRight)
-						&& isValidDestination(board, curColor, tempIndex)) {
-					addToMoves(board, moves, new Move(board, curFigure, index, tempIndex));
-				}
-			}
-		} else if (curFigure == WHITE_KING || curFigure == BLACK_KING) {
-			// usual steps
-			final byte[] indices = new byte[] { 1, 7, 8, 9, -1, -7, -8, -9 };
-			final int maxLeft = col > 1 ? 1 : col; // maxLeft = max(col, 1)
-			final int maxRight = 7 - col > 1 ? 1 : 7 - col;
-			int checkIndex;
-
-			for (byte i = 0; i < 8; i++) {
-				checkIndex = index + indices[i];
-
-				if (isInInterval(checkIndex, index, maxLeft, maxRight)
-						&& isValidDestination(board, curColor, checkIndex)
-						&& !isCovered(board, checkIndex, curColor)) {
-					addToMoves(board, moves, new Move(board, curFigure, index, checkIndex));
-				}
+		final long pinned = getPinned(board, color);
+		long own = board.getOccupancy(color) & ~Bitboard.bit(king);
+		while (own != 0) {
+			generateMoves(board, Long.numberOfTrailingZeros(own), pinned, ~0L, scratch);
+			if (!scratch.isEmpty())
+				return true;
+			own &= own - 1;
+		}
+		return false;
+	}
+
+	/**
+	 * Checks whether a single move is valid for the player to move. First the
+	 * moved figure is generated towards the destination only, ignoring pins
+	 * and checks, then the move is performed once to check the king.
+	 * 
+	 * @param board
+	 *            the current board object
+	 * @param move
+	 *            the move encoded by {@link PackedMove}
+	 * @param scratch
+	 *            a list that is used for the generation, its content is lost
+	 * @return <tt>true</tt> if <tt>move</tt> is valid
+	 */
+	public static boolean isLegal(Position board, int move, MoveList scratch) {
+		final int source = PackedMove.getSource(move);
+		final byte type = PackedMove.getType(move);
+		final byte color = Figure.getColorFromType(type);
+		if (type == EMPTY || board.getFigures()[source] != type || color != board.getTurn())
+			return false;
+
+		scratch.clear();
+		generateMoves(board, source, 0, ~0L, Bitboard.bit(PackedMove.getDestination(move)),
+				scratch);
+		boolean found = false;
+		for (int i = 0; !found && i < scratch.size(); i++)
+			found = scratch.get(i) == move;
+		if (!found)
+			return false;
+
+		final long undo = board.makeMove(move);
+		final boolean check = board.getCheck(color);
+		board.unmakeMove(move, undo);
+		return !check;
+	}
+
+	/**
+	 * Generates the valid moves of one player that hit a figure or change a
+	 * pawn into another figure (including en passant) into <tt>moves</tt>.
+	 * Together with {@link #generateQuiets(Position, byte, long, long, MoveList)}
+	 * this gives all moves of {@link #generateMoves(Position, byte, MoveList)}.
+	 * 
+	 * @param board
+	 *            the current board object
+	 * @param color
+	 *            the color of the current player
+	 * @param pinned
+	 *            the pinned figures of the player (see
+	 *            {@link #getPinned(Position, byte)})
+	 * @param checkMask
+	 *            the check mask of the player (see
+	 *            {@link #getCheckMask(Position, byte, long)})
+	 * @param moves
+	 *            the list the encoded moves are appended to
+	 */
+	public static void generateCaptures(Position board, byte color, long pinned, long checkMask,
+			MoveList moves) {
+		final long enemy = board.getOccupancy(flipColor(color));
+		final long lastRow = color == WHITE ? Bitboard.RANK_8 : Bitboard.RANK_1;
+		final long enPassant = board.enPassant >= 0 ? Bitboard.bit(board.enPassant) : 0;
+		generateMoves(board, color, pinned, checkMask, enemy, enemy | lastRow | enPassant, moves);
+	}
+
+	/**
+	 * Generates the valid moves of one player that neither hit a figure nor
+	 * change a pawn into another figure into <tt>moves</tt>.
+	 * 
+	 * @param board
+	 *            the current board object
+	 * @param color
+	 *            the color of the current player
+	 * @param pinned
+	 *            the pinned figures of the player (see
+	 *            {@link #getPinned(Position, byte)})
+	 * @param checkMask
+	 *            the check mask of the player (see
+	 *            {@link #getCheckMask(Position, byte, long)})
+	 * @param moves
+	 *            the list the encoded moves are appended to
+	 */
+	public static void generateQuiets(Position board, byte color, long pinned, long checkMask,
+			MoveList moves) {
+		final long empty = ~board.getOccupancy();
+		final long lastRow = color == WHITE ? Bitboard.RANK_8 : Bitboard.RANK_1;
+		final long enPassant = board.enPassant >= 0 ? Bitboard.bit(board.enPassant) : 0;
+		generateMoves(board, color, pinned, checkMask, empty, empty & ~lastRow & ~enPassant,
+				moves);
+	}
+
+	/**
+	 * Generates the valid moves of all figures of one player that end on
+	 * <tt>targets</tt> (<tt>pawnTargets</tt> for pawns).
+	 */
+	private static void generateMoves(Position board, byte color, long pinned, long checkMask,
+			long targets, long pawnTargets, MoveList moves) {
+		final long pawns = board.pieces[Bitboard.colorIndex(color) * Bitboard.TYPES];
+		long own = board.getOccupancy(color);
+
+		while (own != 0) {
+			int index = Long.numberOfTrailingZeros(own);
+			long bit = own & -own;
+			own &= own - 1;
+			generateMoves(board, index, pinned, checkMask, (pawns & bit) != 0 ? pawnTargets
+					: targets, moves);
+		}
+	}
+
+	/**
+	 * Generates all valid moves of a player whose king is in check into
+	 * <tt>moves</tt>: steps of the king, hits of the checking figure and
+	 * moves onto the fields between the checking figure and the king. Only
+	 * the king may move if there is a double check. Pinned figures can never
+	 * resolve a check, so they are left out completely.
+	 * 
+	 * @param board
+	 *            the current board object
+	 * @param color
+	 *            the color of the player in check
+	 * @param moves
+	 *            the list the encoded moves are appended to
+	 */
+	public static void generateEvasions(Position board, byte color, MoveList moves) {
+		final byte[] figures = board.getFigures();
+		final int king = board.getIndexOfKing(color);
+		final long checkers = getCheckers(board, color);
+
+		// the king escapes (or hits the checking figure)
+		generateMoves(board, king, 0, 0, moves);
+		if ((checkers & (checkers - 1)) != 0)
+			return;
+
+		final int checker = Long.numberOfTrailingZeros(checkers);
+		final int base = Bitboard.colorIndex(color) * Bitboard.TYPES;
+		final long pawns = board.pieces[base];
+		final long occupied = board.getOccupancy();
+		final long movable = board.getOccupancy(color) & ~board.pieces[base + 5]
+				& ~getPinned(board, color);
+
+		// hit the checking figure
+		long attackers = getAttackers(board, checker, color, occupied) & movable;
+		while (attackers != 0) {
+			int index = Long.numberOfTrailingZeros(attackers);
+			attackers &= attackers - 1;
+			if ((pawns & Bitboard.bit(index)) != 0)
+				addPawnMove(board, moves, figures[index], index, checker);
+			else
+				moves.add(createMove(board, figures[index], index, checker));
+		}
+
+		// move between the checking figure and the king
+		final int forward = color == WHITE ? 8 : -8;
+		final int doubleStepRow = color == WHITE ? 3 : 4;
+		long blocks = Bitboard.BETWEEN[king][checker];
+		while (blocks != 0) {
+			int block = Long.numberOfTrailingZeros(blocks);
+			blocks &= blocks - 1;
+
+			long blockers = getAttackers(board, block, color, occupied) & movable & ~pawns;
+			while (blockers != 0) {
+				int index = Long.numberOfTrailingZeros(blockers);
+				blockers &= blockers - 1;
+				moves.add(PackedMove.create(figures[index], index, block));
 			}
 
-			// Rochade
-			boolean inCheck;
-			boolean canRochadeA;
-			boolean canRochadeH;
-
-			if (curColor == WHITE) {
-				inCheck = board.whiteInCheck;
-				canRochadeA = board.whiteCanRochadeA;
-				canRochadeH = board.whiteCanRochadeH;
-			} else {
-				inCheck = board.blackInCheck;
-				canRochadeA = board.blackCanRochadeA;
-				canRochadeH = board.blackCanRochadeH;
+			int index = block - forward;
+			if (!isValidField(index))
+				continue;
+			if ((movable & pawns & Bitboard.bit(index)) != 0) {
+				addPawnMove(board, moves, figures[index], index, block);
+			} else if (figures[index] == EMPTY && (block >> 3) == doubleStepRow
+					&& (movable & pawns & Bitboard.bit(index - forward)) != 0) {
+				moves.add(PackedMove.create(figures[index - forward], index - forward, block));
 			}
+		}
 
-			if (!inCheck) {
-				if (canRochadeA && isFree(board, index - 3) && isFree(board, index - 2)
-						&& isFree(board, index - 1) && !isCovered(board, index - 2, curColor)
-						&& !isCovered(board, index - 1, curColor)) {
-					addToMoves(board, moves, new Move(board, curFigure, index, index - 2));
-				}
-				if (canRochadeH && isFree(board, index + 1) && isFree(board, index + 2)
-						&& !isCovered(board, index + 1, curColor)
-						&& !isCovered(board, index + 2, curColor)) {
-					addToMoves(board, moves, new Move(board, curFigure, index, index + 2));
-				}
+		// en passant may hit the checking pawn or block the check
+		final int enPassant = board.enPassant;
+		if (enPassant >= 0
+				&& (getCheckMask(board, color, checkers) & (Bitboard.bit(enPassant) | Bitboard
+						.bit(enPassant - forward))) != 0) {
+			long hitters = Bitboard.PAWN_ATTACKS[1 - Bitboard.colorIndex(color)][enPassant]
+					& pawns & movable;
+			while (hitters != 0) {
+				int index = Long.numberOfTrailingZeros(hitters);
+				hitters &= hitters - 1;
+				addIfValid(board, moves, PackedMove.createEnPassant(figures[index], index,
+						enPassant));
 			}
 		}
+	}
 
-		if (curFigure == WHITE_ROOK || curFigure == BLACK_ROOK || curFigure == WHITE_QUEEN
-				|| curFigure == BLACK_QUEEN) {
+	/**
+	 * Generates all valid moves a figure at <tt>board[index]</tt> can perform
+	 * into <tt>moves</tt>. The pinned figures and the check mask of the player
+	 * are calculated once per position by the caller (see
+	 * {@link #getPinned(Position, byte)} and
+	 * {@link #getCheckMask(Position, byte, long)}). The king only moves to fields
+	 * that are not attacked (see {@link Position#getAttacks(byte)}). Only en
+	 * passant hits are simulated, all other moves are valid if they stay
+	 * within these masks.
+	 * 
+	 * @param board
+	 *            the current board object
+	 * @param index
+	 *            the chosen index on the board
+	 * @param pinned
+	 *            the mask of the figures of the player that are pinned to its
+	 *            king
+	 * @param checkMask
+	 *            the mask of fields that resolve a check of the player
+	 * @param moves
+	 *            the list the encoded moves are appended to
+	 */
+	public static void generateMoves(Position board, int index, long pinned, long checkMask,
+			MoveList moves) {
+		generateMoves(board, index, pinned, checkMask, ~0L, moves);
+	}
 
-			int leftEdge = row << 3;
-			int rightEdge = leftEdge + 7;
+	/**
+	 * Generates the valid moves a figure at <tt>board[index]</tt> can perform
+	 * into <tt>moves</tt>, but only those ending on a field of
+	 * <tt>targets</tt> (en passant hits end on the field the hit pawn
+	 * skipped, rochades on the new field of the king).
+	 * 
+	 * @param board
+	 *            the current board object
+	 * @param index
+	 *            the chosen index on the board
+	 * @param pinned
+	 *            the mask of the figures of the player that are pinned to its
+	 *            king
+	 * @param checkMask
+	 *            the mask of fields that resolve a check of the player
+	 * @param targets
+	 *            the mask of all allowed destinations
+	 * @param moves
+	 *            the list the encoded moves are appended to
+	 */
+	public static void generateMoves(Position board, int index, long pinned, long checkMask,
+			long targets, MoveList moves) {
+		final byte curFigure = board.getFigures()[index];
+		final int color = Bitboard.colorIndex(curFigure);
+
+		if ((curFigure & ~BLACK) == WHITE_KING) {
+			generateKingMoves(board, index, curFigure, targets, moves);
+			return;
+		}
 
-			// go up
-			int i = index + 8;
+		// the destinations a figure other than the king can go to
+		long legal = checkMask & targets & ~board.occupancy[color];
+		if ((pinned & Bitboard.bit(index)) != 0)
+			legal &= Bitboard.LINE[board.getIndexOfKing(Figure.getColorFromType(curFigure))][index];
+
+		switch (curFigure & ~BLACK) {
+		case WHITE_PAWN:
+			generatePawnMoves(board, index, curFigure, legal, targets, moves);
+			break;
+		case WHITE_KNIGHT:
+			addMoves(board, moves, curFigure, index, Bitboard.KNIGHT_ATTACKS[index] & legal);
+			break;
+		case WHITE_ROOK:
+			addMoves(board, moves, curFigure, index,
+					Bitboard.rookAttacks(index, board.getOccupancy()) & legal);
+			break;
+		case WHITE_BISHOP:
+			addMoves(board, moves, curFigure, index,
+					Bitboard.bishopAttacks(index, board.getOccupancy()) & legal);
+			break;
+		case WHITE_QUEEN:
+			addMoves(board, moves, curFigure, index,
+					Bitboard.queenAttacks(index, board.getOccupancy()) & legal);
+			break;
+		default:
+		}
+	}
 
-			while (isFree(board, i)) {
-				addToMoves(board, moves, new Move(board, curFigure, index, i));
-				i = i + 8;
-			}
-			if (isHitable(board, curColor, i)) {
-				addToMoves(board, moves, new Move(board, curFigure, index, i));
+	/**
+	 * Generates the moves of a pawn: steps forward (two at once from its
+	 * initial row), hits, changes into another figure at the last row and en
+	 * passant hits.
+	 * 
+	 * @param board
+	 *            the current board object
+	 * @param index
+	 *            the index of the pawn
+	 * @param pawn
+	 *            the pawn
+	 * @param legal
+	 *            the mask of fields the pawn may go to (check mask, pin and
+	 *            targets)
+	 * @param targets
+	 *            the mask of all allowed destinations
+	 * @param moves
+	 *            the list the encoded moves are appended to
+	 */
+	private static void generatePawnMoves(Position board, int index, byte pawn, long legal,
+			long targets, MoveList moves) {
+		final int color = Bitboard.colorIndex(pawn);
+		final long empty = ~board.getOccupancy();
+		final long attacks = Bitboard.PAWN_ATTACKS[color][index];
+
+		long destinations = attacks & board.occupancy[1 - color];
+		long step = Bitboard.PAWN_STEPS[color][index] & empty;
+		if (step != 0)
+			destinations |= step | (Bitboard.PAWN_DOUBLE_STEPS[color][index] & empty);
+		destinations &= legal;
+
+		if ((destinations & LAST_ROWS) != 0) {
+			// change pawn to another figure at last row
+			final byte[] changeableFigures = CHANGEABLE_FIGURES[color];
+			while (destinations != 0) {
+				int destination = Long.numberOfTrailingZeros(destinations);
+				destinations &= destinations - 1;
+				int move = createMove(board, pawn, index, destination);
+				for (byte figure : changeableFigures)
+					moves.add(PackedMove.withNewFigureType(move, figure));
 			}
+		} else {
+			addMoves(board, moves, pawn, index, destinations);
+		}
 
-			// go down
-			i = index - 8;
-			while (isFree(board, i)) {
-				addToMoves(board, moves, new Move(board, curFigure, index, i));
-				i = i - 8;
-			}
-			if (isHitable(board, curColor, i)) {
-				addToMoves(board, moves, new Move(board, curFigure, index, i));
-			}
+		// en passant: the hit pawn stands next to this one
+		final int enPassant = board.enPassant;
+		if (enPassant >= 0 && (attacks & targets & Bitboard.bit(enPassant)) != 0
+				&& board.getFigures()[(index & 56) | (enPassant & 7)] == (pawn ^ BLACK)) {
+			addIfValid(board, moves, PackedMove.createEnPassant(pawn, index, enPassant));
+		}
+	}
 
-			// go left
-			i = index - 1;
-			while (i >= leftEdge && isFree(board, i)) {
-				addToMoves(board, moves, new Move(board, curFigure, index, i--));
-			}
-			if (i >= leftEdge && isHitable(board, curColor, i)) {
-				addToMoves(board, moves, new Move(board, curFigure, index, i));
+	/**
+	 * Generates the moves of a king: steps to fields that are not attacked by
+	 * the opponent (see {@link Position#getAttacks(byte)}) and the rochades.
+	 * 
+	 * @param board
+	 *            the current board object
+	 * @param index
+	 *            the index of the king
+	 * @param king
+	 *            the king
+	 * @param targets
+	 *            the mask of all allowed destinations
+	 * @param moves
+	 *            the list the encoded moves are appended to
+	 */
+	private static void generateKingMoves(Position board, int index, byte king, long targets,
+			MoveList moves) {
+		final byte curColor = Figure.getColorFromType(king);
+		final byte oppColor = flipColor(curColor);
+		final boolean inCheck = board.getCheck(curColor);
+
+		long steps = Bitboard.KING_ATTACKS[index] & ~board.getOccupancy(curColor) & targets;
+		if (steps != 0)
+			steps &= ~board.getAttacks(oppColor);
+
+		// the king must not step back along the ray of a sliding checker
+		if (steps != 0 && inCheck) {
+			final int base = Bitboard.colorIndex(oppColor) * Bitboard.TYPES;
+			long sliders = getCheckers(board, curColor)
+					& (board.pieces[base + 1] | board.pieces[base + 3] | board.pieces[base + 4]);
+			while (sliders != 0) {
+				int checker = Long.numberOfTrailingZeros(sliders);
+				sliders &= sliders - 1;
+				steps &= ~Bitboard.LINE[index][checker] | Bitboard.bit(checker);
 			}
+		}
+		addMoves(board, moves, king, index, steps);
 
-			// go right
-			i = index + 1;
-			while (i <= rightEdge && isFree(board, i)) {
-				addToMoves(board, moves, new Move(board, curFigure, index, i++));
-			}
-			if (i <= rightEdge && isHitable(board, curColor, i)) {
-				addToMoves(board, moves, new Move(board, curFigure, index, i));
-			}
+		// Rochade
+		if (inCheck)
+			return;
+
+		final boolean canRochadeA;
+		final boolean canRochadeH;
+		if (curColor == WHITE) {
+			canRochadeA = board.whiteCanRochadeA;
+			canRochadeH = board.whiteCanRochadeH;
+		} else {
+			canRochadeA = board.blackCanRochadeA;
+			canRochadeH = board.blackCanRochadeH;
+		}
+
+		final long occupied = board.getOccupancy();
+		if (canRochadeA && (targets & Bitboard.bit(index - 2)) != 0
+				&& (occupied & (7L << (index - 3))) == 0
+				&& !board.isAttacked(index - 2, oppColor)
+				&& !board.isAttacked(index - 1, oppColor)) {
+			moves.add(PackedMove.create(king, index, index - 2));
 		}
+		if (canRochadeH && (targets & Bitboard.bit(index + 2)) != 0
+				&& (occupied & (3L << (index + 1))) == 0
+				&& !board.isAttacked(index + 1, oppColor)
+				&& !board.isAttacked(index + 2, oppColor)) {
+			moves.add(PackedMove.create(king, index, index + 2));
+		}
+	}
 
-		if (curFigure == WHITE_BISHOP || curFigure == BLACK_BISHOP || curFigure == WHITE_QUEEN
-				|| curFigure == BLACK_QUEEN) {
+	/**
+	 * Encodes a move and marks it as hit if <tt>destination</tt> is occupied.
+	 * 
+	 * @param board
+	 *            the board
+	 * @param figure
+	 *            the moving figure
+	 * @param source
+	 *            the index of the moving figure
+	 * @param destination
+	 *            the index where the move ends
+	 * @return the encoded move
+	 */
+	private static int createMove(Position board, byte figure, int source, int destination) {
+		if (board.getFigures()[destination] == EMPTY)
+			return PackedMove.create(figure, source, destination);
+		return PackedMove.createHit(figure, source, destination);
+	}
 
-			final int maxLeft = col; // maximum number of cols the figure can go
-										// to the left
-			final int maxRight = 7 - col; // maximum number of cols the figure
-											// can go to the right
+	/**
+	 * Adds a move of a pawn. At the last row one move per figure the pawn can
+	 * be changed into is added.
+	 * 
+	 * @param board
+	 *            the board
+	 * @param moves
+	 *            the current list of moves
+	 * @param pawn
+	 *            the moving pawn
+	 * @param source
+	 *            the index of the moving pawn
+	 * @param destination
+	 *            the index where the move ends
+	 */
+	private static void addPawnMove(Position board, MoveList moves, byte pawn, int source,
+			int destination) {
+		final int move = createMove(board, pawn, source, destination);
+		final int row = destination >> 3;
+
+		if (row == 0 || row == 7) {
+			for (byte figure : CHANGEABLE_FIGURES[Bitboard.colorIndex(pawn)])
+				moves.add(PackedMove.withNewFigureType(move, figure));
+		} else {
+			moves.add(move);
+		}
+	}
 
-			// go upright
-			int i = index + 9;
-			int m = maxRight - 1;
+	/**
+	 * Adds a move of <tt>figure</tt> from <tt>index</tt> to each field of
+	 * <tt>targets</tt> without any further checks. The targets have to be
+	 * valid already.
+	 * 
+	 * @param board
+	 *            the board
+	 * @param moves
+	 *            the current list of moves
+	 * @param figure
+	 *            the moving figure
+	 * @param index
+	 *            the index of the moving figure
+	 * @param targets
+	 *            the mask of all destinations
+	 */
+	private static void addMoves(Position board, MoveList moves, byte figure, int index,
+			long targets) {
+		while (targets != 0) {
+			int destination = Long.numberOfTrailingZeros(targets);
+			targets &= targets - 1;
+			moves.add(createMove(board, figure, index, destination));
+		}
+	}
 
-			while (m >= 0 && isFree(board, i)) {
-				addToMoves(board, moves, new Move(board, curFigure, index, i));
-				i = i + 9;
-				m--;
-			}
-			if (m >= 0 && isHitable(board, curColor, i)) {
-				addToMoves(board, moves, new Move(board, curFigure, index, i));
-			}
+	/**
+	 * Adds an encoded move to a list of moves after checking whether this is
+	 * possible (i.e. the king is not covered afterwards).
+	 * 
+	 * @param board
+	 *            the board
+	 * @param moves
+	 *            the current list of moves
+	 * @param move
+	 *            the encoded move that is about to be added
+	 * @return <tt>true</tt> if <tt>move</tt> was added to <tt>moves</tt>.
+	 */
+	private static boolean addIfValid(Position board, MoveList moves, int move) {
+		// simulate the chosen move
+		long undo = board.makeMove(move);
+		boolean check = board.getCheck(Figure.getColorFromType(PackedMove.getType(move)));
+		board.unmakeMove(move, undo);
 
-			// go downright
-			i = index - 7;
-			m = maxRight - 1;
-			while (m >= 0 && isFree(board, i)) {
-				addToMoves(board, moves, new Move(board, curFigure, index, i));
-				i = i - 7;
-				m--;
-			}
-			if (m >= 0 && isHitable(board, curColor, i)) {
-				addToMoves(board, moves, new Move(board, curFigure, index, i));
-			}
+		if (check)
+			return false;
+		moves.add(move);
+		return true;
+	}
 
-			// go upleft
-			i = index + 7;
-			m = maxLeft - 1;
-			while (m >= 0 && isFree(board, i)) {
-				addToMoves(board, moves, new Move(board, curFigure, index, i));
-				i = i + 7;
-				m--;
-			}
-			if (m >= 0 && isHitable(board, curColor, i)) {
-				addToMoves(board, moves, new Move(board, curFigure, index, i));
-			}
+	/**
+	 * Counts the pseudo-legal moves of the figure at <tt>index</tt>, i.e.
+	 * without regarding pins, checks, rochade and en passant. Nothing is
+	 * generated, the count is taken from the attack maps (see
+	 * {@link Position#getAttacksFrom(int)}).
+	 * 
+	 * @param board
+	 *            the board
+	 * @param index
+	 *            the index of the figure
+	 * @return the number of fields the figure can move to, 0 for an empty
+	 *         field
+	 */
+	public static int countMobility(Position board, int index) {
+		final byte figure = board.getFigures()[index];
+		if (figure == EMPTY)
+			return 0;
+
+		final int color = Bitboard.colorIndex(figure);
+		if ((figure & ~BLACK) != WHITE_PAWN)
+			return Long.bitCount(board.getAttacksFrom(index) & ~board.occupancy[color]);
+
+		final long empty = ~board.getOccupancy();
+		long steps = Bitboard.PAWN_STEPS[color][index] & empty;
+		if (steps != 0)
+			steps |= Bitboard.PAWN_DOUBLE_STEPS[color][index] & empty;
+		return Long.bitCount(steps)
+				+ Long.bitCount(Bitboard.PAWN_ATTACKS[color][index] & board.occupancy[1 - color]);
+	}
 
-			// go downleft
-			i = index - 9;
-			m = maxLeft - 1;
-			while (m >= 0 && isFree(board, i)) {
-				addToMoves(board, moves, new Move(board, curFigure, index, i));
-				i = i - 9;
-				m--;
-			}
-			if (m >= 0 && isHitable(board, curColor, i)) {
-				addToMoves(board, moves, new Move(board, curFigure, index, i));
-			}
+	/**
+	 * Counts the pseudo-legal moves of all figures of one player (see
+	 * {@link #countMobility(Position, int)}).
+	 * 
+	 * @param board
+	 *            the board
+	 * @param color
+	 *            the color of the player
+	 * @return the number of pseudo-legal moves of <tt>color</tt>
+	 */
+	public static int countMobility(Position board, byte color) {
+		int mobility = 0;
+		long own = board.getOccupancy(color);
+		while (own != 0) {
+			mobility += countMobility(board, Long.numberOfTrailingZeros(own));
+			own &= own - 1;
 		}
+		return mobility;
+	}
+
+	/**
+	 * Counts the fields attacked by the figure at <tt>index</tt>, including
+	 * fields of its own figures (i.e. covered figures).
+	 * 
+	 * @param board
+	 *            the board
+	 * @param index
+	 *            the index of the figure
+	 * @return the number of fields attacked from <tt>index</tt>
+	 */
+	public static int countAttacks(Position board, int index) {
+		return Long.bitCount(board.getAttacksFrom(index));
+	}
+
+	/**
+	 * Counts the fields attacked by at least one figure of a player.
+	 * 
+	 * @param board
+	 *            the board
+	 * @param color
+	 *            the color of the player
+	 * @return the number of fields attacked by <tt>color</tt>
+	 */
+	public static int countAttackedFields(Position board, byte color) {
+		return Long.bitCount(board.getAttacks(color));
+	}
+
+	/**
+	 * Finds all figures of the opponent that give check to the king of
+	 * <tt>color</tt>.
+	 * 
+	 * @param board
+	 *            the board
+	 * @param color
+	 *            the color of the king
+	 * @return the mask of all figures giving check
+	 */
+	public static long getCheckers(Position board, byte color) {
+		return getAttackers(board, board.getIndexOfKing(color), flipColor(color),
+				board.getOccupancy());
+	}
+
+	/**
+	 * Calculates the fields a figure other than the king has to move to in
+	 * order to resolve a check: the field of the checking figure or a field
+	 * between it and the king. Nothing resolves a double check.
+	 * 
+	 * @param board
+	 *            the board
+	 * @param color
+	 *            the color of the king
+	 * @param checkers
+	 *            the figures giving check (see
+	 *            {@link #getCheckers(Position, byte)})
+	 * @return all fields if there is no check, the mask of resolving fields
+	 *         otherwise
+	 */
+	public static long getCheckMask(Position board, byte color, long checkers) {
+		if (checkers == 0)
+			return ~0L;
+		if ((checkers & (checkers - 1)) != 0)
+			return 0;
+		return checkers
+				| Bitboard.BETWEEN[board.getIndexOfKing(color)][Long.numberOfTrailingZeros(checkers)];
+	}
 
-		return moves;
+	/**
+	 * Finds all figures of <tt>color</tt> that are pinned to their own king,
+	 * i.e. the only figure between the king and a sliding figure of the
+	 * opponent.
+	 * 
+	 * @param board
+	 *            the board
+	 * @param color
+	 *            the color of the king
+	 * @return the mask of all pinned figures
+	 */
+	public static long getPinned(Position board, byte color) {
+		final long[] pieces = board.pieces;
+		final int king = board.getIndexOfKing(color);
+		final int base = Bitboard.colorIndex(flipColor(color)) * Bitboard.TYPES;
+		final long queens = pieces[base + 4];
+		final long occupied = board.getOccupancy();
+		final long own = board.getOccupancy(color);
+		long pinned = 0;
+
+		long snipers = (Bitboard.rookAttacks(king, 0) & (pieces[base + 1] | queens))
+				| (Bitboard.bishopAttacks(king, 0) & (pieces[base + 3] | queens));
+		while (snipers != 0) {
+			long between = Bitboard.BETWEEN[king][Long.numberOfTrailingZeros(snipers)] & occupied;
+			snipers &= snipers - 1;
+			if ((between & (between - 1)) == 0 && (between & own) != 0)
+				pinned |= between;
+		}
+		return pinned;
 	}
 
 	/**
@@ -430,8 +845,7 @@ public class ChessUtil {
 	 * to move towards fields that are not covered by any other figure, all the
 	 * surrounding fields have to be checked against coverage.</br></br>
 	 * 
-	 * <i><b>Important</b>: Quite expensive (~ 20000 nanoseconds on
-	 * QuadCore)!</i>
+	 * Cheap: only a lookup in the attack map the board keeps up to date.
 	 * 
 	 * @param board
 	 *            the board
@@ -440,7 +854,7 @@ public class ChessUtil {
 	 * @return <tt>true</tt> if any of the opponent's figures covers
 	 *         <tt>board[index]</tt>
 	 */
-	static public boolean isCovered(Board board, int index) {
+	static public boolean isCovered(Position board, int index) {
 		return isCovered(board, index, Figure.getColorFromType(board.getFigures()[index]));
 	}
 
@@ -460,170 +874,35 @@ public class ChessUtil {
 	 * @return <tt>true</tt> if any of the opponent's figures covers
 	 *         <tt>board[index]</tt>
 	 */
-	public static boolean isCovered(Board board, int index, byte curColor) {
-		final byte[] figures = board.getFigures();
-		final byte oppPawn, oppRook, oppKnight, oppBishop, oppQueen, oppKing;
-		final int iNextRow;
-		final int row = index >> 3;
-		final int col = index % 8;
-		byte[] indices;
-		int i;
-		int maxLeft;
-		int maxRight;
-
-		if (curColor == BLACK) {
-			oppPawn = WHITE_PAWN;
-			oppRook = WHITE_ROOK;
-			oppKnight = WHITE_KNIGHT;
-			oppBishop = WHITE_BISHOP;
-			oppQueen = WHITE_QUEEN;
-			oppKing = WHITE_KING;
-			iNextRow = index - 8;
-		} else {
-			oppPawn = BLACK_PAWN;
-			oppRook = BLACK_ROOK;
-			oppKnight = BLACK_KNIGHT;
-			oppBishop = BLACK_BISHOP;
-			oppQueen = BLACK_QUEEN;
-			oppKing = BLACK_KING;
-			iNextRow = index + 8;
-		}
-
-		// CHECK FOR PAWNS
-		i = iNextRow - 1;
-		if (col > 0 && checkCover(figures, i, oppPawn))
-			return true;
-		i = iNextRow + 1;
-		if (col < 7 && checkCover(figures, i, oppPawn))
-			return true;
-
-		// CHECK FOR KNIGHTS
-		indices = new byte[] { 6, 15, 17, 10, -6, -15, -17, -10 };
-		maxLeft = col > 2 ? 2 : col;
-		maxRight = 7 - col > 2 ? 2 : 7 - col;
-
-		for (byte j = 0; j < 8; j++) {
-			i = index + indices[j];
-			if (isInInterval(i, index, maxLeft, maxRight) && checkCover(figures, i, oppKnight))
-				return true;
-		}
-
-		// CHECK FOR KINGS
-		indices = new byte[] { 1, 7, 8, 9, -1, -7, -8, -9 };
-		maxLeft = col > 1 ? 1 : col;
-		maxRight = 7 - col > 1 ? 1 : 7 - col;
-
-		for (byte j = 0; j < 8; j++) {
-			i = index + indices[j];
-			if (isInInterval(i, index, maxLeft, maxRight) && checkCover(figures, i, oppKing))
-				return true;
-		}
-
-		// CHECK FOR ROOK AND QUEEN
-		int leftEdge = row << 3;
-		int rightEdge = leftEdge + 7;
-
-		// go up
-		i = index + 8;
-
-		while (isFree(board, i)) {
-			i = i + 8;
-		}
-		if (checkCover(figures, i, oppRook) || checkCover(figures, i, oppQueen))
-			return true;
-
-		// go down
-		i = index - 8;
-		while (isFree(board, i)) {
-			i = i - 8;
-		}
-		if (checkCover(figures, i, oppRook) || checkCover(figures, i, oppQueen))
-			return true;
-
-		// go left
-		i = index - 1;
-		while (i >= leftEdge && isFree(board, i)) {
-			i--;
-		}
-		if (i >= leftEdge && (checkCover(figures, i, oppRook) || checkCover(figures, i, oppQueen)))
-			return true;
-
-		// go right
-		i = index + 1;
-		while (i <= rightEdge && isFree(board, i)) {
-			i++;
-		}
-		if (i <= rightEdge && (checkCover(figures, i, oppRook) || checkCover(figures, i, oppQueen)))
-			return true;
-
-		// CHECK FOR BISHOP AND QUEEN
-		maxLeft = col;
-		maxRight = 7 - col;
-
-		// go upright
-		i = index + 9;
-		int m = maxRight - 1;
-
-		while (m >= 0 && isFree(board, i)) {
-			i = i + 9;
-			m--;
-		}
-		if (m >= 0 && (checkCover(figures, i, oppBishop) || checkCover(figures, i, oppQueen)))
-			return true;
-
-		// go downright
-		i = index - 7;
-		m = maxRight - 1;
-		while (m >= 0 && isFree(board, i)) {
-			i = i - 7;
-			m--;
-		}
-		if (m >= 0 && (checkCover(figures, i, oppBishop) || checkCover(figures, i, oppQueen)))
-			return true;
-
-		// go upleft
-		i = index + 7;
-		m = maxLeft - 1;
-		while (m >= 0 && isFree(board, i)) {
-			i = i + 7;
-			m--;
-		}
-		if (m >= 0 && (checkCover(figures, i, oppBishop) || checkCover(figures, i, oppQueen)))
-			return true;
-
-		// go downleft
-		i = index - 9;
-		m = maxLeft - 1;
-		while (m >= 0 && isFree(board, i)) {
-			i = i - 9;
-			m--;
-		}
-		if (m >= 0 && (checkCover(figures, i, oppBishop) || checkCover(figures, i, oppQueen)))
-			return true;
-		return false;
+	public static boolean isCovered(Position board, int index, byte curColor) {
+		return board.isAttacked(index, flipColor(curColor));
 	}
 
 	/**
-	 * This method is needed to check for the edges of a move. It returns true
-	 * if <tt>index</tt> is within <tt>mean-left</tt> and <tt>mean+right</tt>
+	 * Finds all figures of <tt>color</tt> that attack <tt>board[index]</tt>.
 	 * 
+	 * @param board
+	 *            the board
 	 * @param index
-	 *            the index that should be checked
-	 * @param mean
-	 *            the index of the performing figure
-	 * @param left
-	 *            the maximum amount of cols the figure is allowed to go to the
-	 *            left
-	 * @param right
-	 *            the maximum amount of cols the figure is allowed to go to the
-	 *            right
-	 * @return <tt>true</tt> if index is in interval
-	 *         <tt>[mean - left .. mean + right]</tt>
+	 *            the index on the board
+	 * @param color
+	 *            the color of the attacking figures
+	 * @param occupied
+	 *            the mask of occupied fields the sliding figures are blocked
+	 *            by
+	 * @return the mask of all figures of <tt>color</tt> attacking
+	 *         <tt>board[index]</tt>
 	 */
-	public static boolean isInInterval(int index, int mean, int left, int right) {
-		final int im8 = index % 8;
-		final int mm8 = mean % 8;
-		return mm8 - im8 <= left && im8 - mm8 <= right;
+	public static long getAttackers(Position board, int index, byte color, long occupied) {
+		final long[] pieces = board.pieces;
+		final int base = Bitboard.colorIndex(color) * Bitboard.TYPES;
+		final long queens = pieces[base + 4];
+
+		return (Bitboard.PAWN_ATTACKS[1 - Bitboard.colorIndex(color)][index] & pieces[base])
+				| (Bitboard.KNIGHT_ATTACKS[index] & pieces[base + 2])
+				| (Bitboard.KING_ATTACKS[index] & pieces[base + 5])
+				| (Bitboard.rookAttacks(index, occupied) & (pieces[base + 1] | queens))
+				| (Bitboard.bishopAttacks(index, occupied) & (pieces[base + 3] | queens));
 	}
 
 	/**
@@ -640,7 +919,7 @@ public class ChessUtil {
 	 * @return true if the field <tt>board[index]</tt> is occupied by the
 	 *         opposite color.
 	 */
-	public static boolean isHitable(Board board, byte curColor, int index) {
+	public static boolean isHitable(Position board, byte curColor, int index) {
 		if (!isValidField(index))
 			return false;
 		byte enemyFigure = board.getFigures()[index];
@@ -664,7 +943,7 @@ public class ChessUtil {
 	 * @return <tt>true</tt> if position is valid and empty or hitable by
 	 *         curColor
 	 */
-	public static boolean isValidDestination(Board board, byte color, int index) {
+	public static boolean isValidDestination(Position board, byte color, int index) {
 		return isFree(board, index) || isHitable(board, color, index);
 	}
 
@@ -677,7 +956,7 @@ public class ChessUtil {
 	 *            the index on the board
 	 * @return <tt>true</tt> if board[index]</tt> has valid ranges and is empty.
 	 */
-	public static boolean isFree(Board board, int index) {
+	public static boolean isFree(Position board, int index) {
 		return isValidField(index) && board.getFigures()[index] == EMPTY;
 	}
 
@@ -0,0 +1,123 @@
+package at.jku.chess.saksanturilas.board;
+
+/**
+ * Shows any position of a game, i.e. to review it move by move. The cursor
+ * works on its own copy of a position: stepping forward makes the next move
+ * of the record, stepping backward takes back the last one with the state
+ * kept by the record. A jump starts at the nearest checkpoint of the record
+ * (see {@link GameRecord#CHECKPOINT_INTERVAL}), before or after the target,
+ * or at the current position of the cursor, whichever is closer, so at most
+ * half an interval of moves is made or taken back (a whole one after the last
+ * checkpoint).
+ * 
+ * The cursor reads the record only, never the board, as the board is changed
+ * while the moves of a player are generated. So it may be used by another
+ * thread than the one of the game, i.e. by the user interface. The record is
+ * locked while the cursor reads it.
+ * 
+ * @author Fabian Jordan (0855941)
+ * @author Wolfgang Kuellinger (0955711)
+ * 
+ */
+public class GameCursor {
+	private final GameRecord record;
+	/** The position the cursor points to */
+	private final Position position;
+	/** The number of moves made in <tt>position</tt> */
+	private int move;
+
+	/**
+	 * Creates a cursor pointing to the start of the game.
+	 * 
+	 * @param board
+	 *            the board of the game
+	 */
+	public GameCursor(Board board) {
+		this.record = board.getRecord();
+		synchronized (record) {
+			this.position = new Position(record.getCheckpoint(0));
+		}
+		this.move = 0;
+	}
+
+	/**
+	 * @return the number of moves made in the current position of the cursor
+	 */
+	public int getMove() {
+		return move;
+	}
+
+	/**
+	 * @return the position the cursor points to, it is changed by the cursor
+	 */
+	public Position getPosition() {
+		return position;
+	}
+
+	/**
+	 * Moves the cursor to the position after a number of moves of the game.
+	 * 
+	 * @param target
+	 *            the number of moves, from <tt>0</tt> (the start) to
+	 *            {@link GameRecord#countMoves()}
+	 * @return the position after <tt>target</tt> moves
+	 */
+	public Position seek(int target) {
+		synchronized (record) {
+			final int countMoves = record.countMoves();
+			if (target < 0 || target > countMoves)
+				throw new ChessException("Move %d is not part of the game (0 to %d).", target,
+						countMoves);
+
+			// start at the closest of the current position and a checkpoint
+			final int interval = GameRecord.CHECKPOINT_INTERVAL;
+			int checkpoint = Math.min(target / interval, record.countCheckpoints() - 1);
+			// the checkpoint after the target may be closer, then the moves are taken back
+			if (checkpoint + 1 < record.countCheckpoints()
+					&& (checkpoint + 1) * interval - target < target - checkpoint * interval)
+				checkpoint++;
+			final int fromCheckpoint = Math.abs(target - checkpoint * interval);
+			// the game may have changed since the cursor was moved the last time
+			final boolean valid = move <= countMoves && record.getKey(move) == position.getHash();
+			if (!valid || fromCheckpoint < Math.abs(target - move)) {
+				position.set(record.getCheckpoint(checkpoint));
+				move = checkpoint * interval;
+			}
+
+			while (move < target)
+				forward();
+			while (move > target)
+				backward();
+			return position;
+		}
+	}
+
+	/**
+	 * Makes the next move of the game.
+	 * 
+	 * @return the position after the move
+	 */
+	public Position forward() {
+		synchronized (record) {
+			if (move >= record.countMoves())
+				throw new ChessException("There is no move after move %d.", move);
+			position.makeMove(record.getMove(move++));
+			return position;
+		}
+	}
+
+	/**
+	 * Takes back the last move.
+	 * 
+	 * @return the position before the move
+	 */
+	public Position backward() {
+		synchronized (record) {
+			if (move <= 0)
+				throw new ChessException("There is no move before the start.");
+			move--;
+			position.unmakeMove(record.getMove(move), record.getMoveState(move));
+			return position;
+		}
+	}
+}
@@ -0,0 +1,289 @@
+package at.jku.chess.saksanturilas.board;
+
+import java.util.Arrays;
+
+import at.jku.chess.saksanturilas.move.Move;
+import at.jku.chess.saksanturilas.move.PackedMove;
+
+/**
+ * The record of a game: the finally executed plies with everything needed to
+ * take them back, and the hashes of all positions of the game. Everything is
+ * kept in growable arrays of primitives, so recording a ply neither boxes nor
+ * allocates (apart from growing) and the record can be reused for a new game.
+ *
+ * A ply is either a move encoded by {@link PackedMove} or a remis move stored
+ * as <tt>-remis</tt>. Only moves lead to new positions, so the positions are
+ * counted separately: position <tt>0</tt> is the start, position
+ * <tt>i + 1</tt> the one after {@link #getMove(int) move} <tt>i</tt>.
+ *
+ * Every {@link #CHECKPOINT_INTERVAL} moves a copy of the position is kept, so
+ * any position of the game can be restored by a short replay (see
+ * {@link GameCursor}).
+ *
+ * The record is changed by the thread of the game only, the methods that
+ * change it lock the record. Other threads have to hold the lock while they
+ * read it.
+ *
+ * @author Fabian Jordan (0855941)
+ * @author Wolfgang Kuellinger (0955711)
+ *
+ */
+public class GameRecord {
+	/** The number of moves between two checkpoints */
+	public static final int CHECKPOINT_INTERVAL = 16;
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	/** The plies, moves encoded by {@link PackedMove} or <tt>-remis</tt> */
+	private int[] plies;
+	/** The state before each ply, see {@link Board#makeMove(int)} */
+	private long[] states;
+	/** The plies since the last hit or pawn move before each ply */
+	private int[] countPlies;
+	/** The number of plies */
+	private int size;
+	/** The moves of the game, without remis moves */
+	private int[] moves;
+	/** The number of the ply of each move */
+	private int[] movePlies;
+	/** The hashes of the positions, the start first */
+	private long[] keys;
+	/** The number of moves */
+	private int countMoves;
+	/**
+	 * The positions after <tt>0, CHECKPOINT_INTERVAL, ...</tt> moves, reused
+	 * for the following games
+	 */
+	private Position[] checkpoints;
+	/** The number of valid checkpoints */
+	private int countCheckpoints;
+
+	public GameRecord() {
+		plies = new int[INITIAL_CAPACITY];
+		states = new long[INITIAL_CAPACITY];
+		countPlies = new int[INITIAL_CAPACITY];
+		moves = new int[INITIAL_CAPACITY];
+		movePlies = new int[INITIAL_CAPACITY];
+		keys = new long[INITIAL_CAPACITY + 1];
+		checkpoints = new Position[INITIAL_CAPACITY / CHECKPOINT_INTERVAL];
+	}
+
+	/**
+	 * Starts a new game, the memory is kept. The start position has to be
+	 * saved by {@link #saveCheckpoint(Position)} then.
+	 *
+	 * @param key
+	 *            the hash of the start position
+	 */
+	public synchronized void reset(long key) {
+		size = 0;
+		countMoves = 0;
+		countCheckpoints = 0;
+		keys[0] = key;
+	}
+
+	/**
+	 * Keeps a copy of the position if a checkpoint is due, has to be called
+	 * after a reset and before each move is performed and added.
+	 *
+	 * @param position
+	 *            the current position
+	 */
+	public synchronized void saveCheckpoint(Position position) {
+		if (countMoves % CHECKPOINT_INTERVAL != 0
+				|| countCheckpoints != countMoves / CHECKPOINT_INTERVAL)
+			return;
+		if (countCheckpoints == checkpoints.length)
+			checkpoints = Arrays.copyOf(checkpoints, 2 * countCheckpoints);
+		if (checkpoints[countCheckpoints] == null)
+			checkpoints[countCheckpoints] = new Position(position);
+		else
+			checkpoints[countCheckpoints].set(position);
+		countCheckpoints++;
+	}
+
+	/**
+	 * Appends a move and the position it leads to.
+	 *
+	 * @param move
+	 *            the move encoded by {@link PackedMove}
+	 * @param state
+	 *            the record returned by {@link Board#makeMove(int)}
+	 * @param plies
+	 *            the plies since the last hit or pawn move before the move
+	 * @param key
+	 *            the hash of the position after the move
+	 */
+	public synchronized void addMove(int move, long state, int plies, long key) {
+		addPly(move, state, plies);
+		if (countMoves == moves.length) {
+			moves = Arrays.copyOf(moves, 2 * countMoves);
+			movePlies = Arrays.copyOf(movePlies, 2 * countMoves);
+			keys = Arrays.copyOf(keys, 2 * countMoves + 1);
+		}
+		movePlies[countMoves] = size - 1;
+		moves[countMoves++] = move;
+		keys[countMoves] = key;
+	}
+
+	/**
+	 * Appends a remis move, it does not lead to a new position.
+	 *
+	 * @param remis
+	 *            the type of the remis move, see {@link Move#getRemis()}
+	 * @param state
+	 *            the state of the board before the remis move
+	 * @param plies
+	 *            the plies since the last hit or pawn move
+	 */
+	public synchronized void addRemis(byte remis, long state, int plies) {
+		addPly(-remis, state, plies);
+	}
+
+	private void addPly(int ply, long state, int plies) {
+		if (size == this.plies.length) {
+			this.plies = Arrays.copyOf(this.plies, 2 * size);
+			states = Arrays.copyOf(states, 2 * size);
+			countPlies = Arrays.copyOf(countPlies, 2 * size);
+		}
+		this.plies[size] = ply;
+		states[size] = state;
+		countPlies[size] = plies;
+		size++;
+	}
+
+	/**
+	 * Removes the last ply (and its position if it is a move).
+	 */
+	public synchronized void removeLast() {
+		size--;
+		if (plies[size] >= 0) {
+			countMoves--;
+			countCheckpoints = Math.min(countCheckpoints, countMoves / CHECKPOINT_INTERVAL + 1);
+		}
+	}
+
+	/**
+	 * @return the number of plies, including remis moves
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param index
+	 *            the number of the ply
+	 * @return the move encoded by {@link PackedMove} or <tt>-remis</tt>
+	 */
+	public int getPly(int index) {
+		return plies[index];
+	}
+
+	/**
+	 * @param index
+	 *            the number of the ply
+	 * @return the state of the board before the ply
+	 */
+	public long getState(int index) {
+		return states[index];
+	}
+
+	/**
+	 * @param index
+	 *            the number of the ply
+	 * @return the plies since the last hit or pawn move before the ply
+	 */
+	public int getCountPlies(int index) {
+		return countPlies[index];
+	}
+
+	/**
+	 * @return the number of moves, without remis moves
+	 */
+	public int countMoves() {
+		return countMoves;
+	}
+
+	/**
+	 * @param index
+	 *            the number of the move, remis moves are not counted
+	 * @return the move encoded by {@link PackedMove}
+	 */
+	public int getMove(int index) {
+		return moves[index];
+	}
+
+	/**
+	 * @param index
+	 *            the number of the move, remis moves are not counted
+	 * @return the record returned by {@link Position#makeMove(int)} for the
+	 *         move
+	 */
+	public long getMoveState(int index) {
+		return states[movePlies[index]];
+	}
+
+	/**
+	 * @return the number of positions kept as checkpoints
+	 */
+	public int countCheckpoints() {
+		return countCheckpoints;
+	}
+
+	/**
+	 * @param index
+	 *            the number of the checkpoint
+	 * @return the position after <tt>index * CHECKPOINT_INTERVAL</tt> moves,
+	 *         it must not be changed
+	 */
+	public Position getCheckpoint(int index) {
+		return checkpoints[index];
+	}
+
+	/**
+	 * @param index
+	 *            the number of the position, <tt>0</tt> is the start
+	 * @return the hash of the position
+	 */
+	public long getKey(int index) {
+		return keys[index];
+	}
+
+	/**
+	 * Checks whether the current position occurred (at least) a number of
+	 * times. Only the positions within the given number of moves can be
+	 * equal, and only every second of them has the same player to move, so
+	 * the positions are scanned backwards in steps of two.
+	 *
+	 * @param times
+	 *            the number of occurrences, including the current one
+	 * @param plies
+	 *            the moves since the last hit or pawn move
+	 * @return <tt>true</tt> if the current position occurred <tt>times</tt>
+	 *         times
+	 */
+	public boolean isRepeated(int times, int plies) {
+		final long current = keys[countMoves];
+		final int first = Math.max(0, countMoves - plies);
+		int count = 1;
+
+		for (int i = countMoves - 2; i >= first; i -= 2) {
+			if (keys[i] == current && ++count == times)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Builds <tt>Move</tt> objects out of all moves, i.e. for the user
+	 * interface.
+	 *
+	 * @return a new array of the moves, the first move first
+	 */
+	public synchronized Move[] toMoves() {
+		final Move[] result = new Move[countMoves];
+		for (int i = 0; i < countMoves; i++)
+			result[i] = new Move(moves[i]);
+		return result;
+	}
+}
@@ -0,0 +1,220 @@
+package at.jku.chess.saksanturilas.board;
+
+import at.jku.chess.saksanturilas.move.MoveList;
+import at.jku.chess.saksanturilas.move.PackedMove;
+
+/**
+ * Hands out the valid moves of a position one after another in stages: a
+ * supplied best move first, then hits and pawn changes (most valuable victim
+ * first), then the killer moves and finally all other moves. A stage is only
+ * generated when the previous one is exhausted, so a cutoff after the first
+ * moves saves most of the generation. One picker is kept per ply and reused
+ * for every position searched at that ply; it also remembers the killer moves
+ * of its ply.
+ *
+ * @author Fabian Jordan (0855941)
+ * @author Wolfgang Kuellinger (0955711)
+ *
+ */
+public class MovePicker {
+	private static final int BEST = 0;
+	private static final int CAPTURES_INIT = 1;
+	private static final int CAPTURES = 2;
+	private static final int KILLERS = 3;
+	private static final int QUIETS_INIT = 4;
+	private static final int QUIETS = 5;
+	private static final int EVASIONS_INIT = 6;
+	private static final int EVASIONS = 7;
+	private static final int DONE = 8;
+
+	/** The value of each type of figure, in the order of {@link Bitboard#pieceIndex} */
+	private static final int[] VALUES = { 1, 5, 3, 3, 9, 0 };
+
+	private final MoveList moves;
+	/** Holds the generated moves of one figure while validating a move */
+	private final MoveList scratch;
+	/** The quiet moves that recently caused a cutoff at this ply */
+	private final int[] killers;
+
+	private Position board;
+	private byte color;
+	private int bestMove;
+	private long pinned;
+	private long checkMask;
+	private int stage;
+	private int next;
+
+	public MovePicker() {
+		moves = new MoveList();
+		scratch = new MoveList();
+		killers = new int[2];
+	}
+
+	/**
+	 * Starts handing out the moves of a new position.
+	 *
+	 * @param board
+	 *            the board, it has to be in the same position whenever
+	 *            {@link #next()} is called
+	 * @param color
+	 *            the color of the current player
+	 * @param bestMove
+	 *            the move to try first (i.e. from a previous search) or
+	 *            {@link PackedMove#NONE}; it is validated before it is handed
+	 *            out
+	 */
+	public void init(Position board, byte color, int bestMove) {
+		this.board = board;
+		this.color = color;
+		this.bestMove = bestMove;
+		this.pinned = ChessUtil.getPinned(board, color);
+		this.checkMask = ChessUtil.getCheckMask(board, color, ChessUtil.getCheckers(board, color));
+		this.stage = BEST;
+		this.next = 0;
+	}
+
+	/**
+	 * Gives back the next valid move of the position.
+	 *
+	 * @return the next encoded move or {@link PackedMove#NONE} if all moves
+	 *         have been handed out
+	 */
+	public int next() {
+		while (true) {
+			switch (stage) {
+			case BEST:
+				stage = board.getCheck(color) ? EVASIONS_INIT : CAPTURES_INIT;
+				if (bestMove != PackedMove.NONE && isValid(bestMove))
+					return bestMove;
+				bestMove = PackedMove.NONE;
+				break;
+
+			case CAPTURES_INIT:
+				moves.clear();
+				ChessUtil.generateCaptures(board, color, pinned, checkMask, moves);
+				next = 0;
+				stage = CAPTURES;
+				break;
+
+			case CAPTURES:
+				while (next < moves.size()) {
+					int move = pickBestCapture();
+					if (move != bestMove)
+						return move;
+				}
+				next = 0;
+				stage = KILLERS;
+				break;
+
+			case KILLERS:
+				while (next < killers.length) {
+					int move = killers[next++];
+					if (move != PackedMove.NONE && move != bestMove && isValid(move))
+						return move;
+				}
+				stage = QUIETS_INIT;
+				break;
+
+			case QUIETS_INIT:
+				moves.clear();
+				ChessUtil.generateQuiets(board, color, pinned, checkMask, moves);
+				next = 0;
+				stage = QUIETS;
+				break;
+
+			case QUIETS:
+				while (next < moves.size()) {
+					int move = moves.get(next++);
+					if (move != bestMove && move != killers[0] && move != killers[1])
+						return move;
+				}
+				stage = DONE;
+				break;
+
+			case EVASIONS_INIT:
+				moves.clear();
+				ChessUtil.generateEvasions(board, color, moves);
+				next = 0;
+				stage = EVASIONS;
+				break;
+
+			case EVASIONS:
+				while (next < moves.size()) {
+					int move = moves.get(next++);
+					if (move != bestMove)
+						return move;
+				}
+				stage = DONE;
+				break;
+
+			default:
+				return PackedMove.NONE;
+			}
+		}
+	}
+
+	/**
+	 * Remembers a move that caused a cutoff at this ply. Hits and pawn changes
+	 * are handed out early anyway and are not remembered.
+	 *
+	 * @param move
+	 *            the encoded move
+	 */
+	public void storeKiller(int move) {
+		if (PackedMove.isHit(move) || PackedMove.getNewFigureType(move) != Figure.EMPTY
+				|| move == killers[0])
+			return;
+		killers[1] = killers[0];
+		killers[0] = move;
+	}
+
+	/**
+	 * Moves the most valuable hit (least valuable attacker on ties) of the
+	 * remaining captures to the front and hands it out.
+	 */
+	private int pickBestCapture() {
+		int best = next;
+		int bestScore = score(moves.get(next));
+		for (int i = next + 1; i < moves.size(); i++) {
+			int score = score(moves.get(i));
+			if (score > bestScore) {
+				best = i;
+				bestScore = score;
+			}
+		}
+		int move = moves.get(best);
+		moves.set(best, moves.get(next));
+		moves.set(next++, move);
+		return move;
+	}
+
+	private int score(int move) {
+		int score = -VALUES[Bitboard.pieceIndex(PackedMove.getType(move)) % Bitboard.TYPES];
+		int hit = PackedMove.getHit(move);
+		if (hit >= 0)
+			score += 16 * VALUES[Bitboard.pieceIndex(board.getFigures()[hit]) % Bitboard.TYPES];
+		byte newFigure = PackedMove.getNewFigureType(move);
+		if (newFigure != Figure.EMPTY)
+			score += 16 * VALUES[Bitboard.pieceIndex(newFigure) % Bitboard.TYPES];
+		return score;
+	}
+
+	/**
+	 * Checks whether a move that was not generated for this position (i.e. a
+	 * killer move) is valid in it.
+	 */
+	private boolean isValid(int move) {
+		final int source = PackedMove.getSource(move);
+		final byte type = PackedMove.getType(move);
+		if (board.getFigures()[source] != type || Figure.getColorFromType(type) != color)
+			return false;
+
+		scratch.clear();
+		ChessUtil.generateMoves(board, source, pinned, checkMask,
+				Bitboard.bit(PackedMove.getDestination(move)), scratch);
+		for (int i = 0; i < scratch.size(); i++)
+			if (scratch.get(i) == move)
+				return true;
+		return false;
+	}
+}
@@ -0,0 +1,859 @@
+package at.jku.chess.saksanturilas.board;
+
+import static at.jku.chess.saksanturilas.board.ChessUtil.*;
+import static at.jku.chess.saksanturilas.board.Figure.*;
+
+import java.util.Arrays;
+
+import at.jku.chess.saksanturilas.move.PackedMove;
+
+/**
+ * The state of a position that is needed to generate and search moves: the
+ * figures (also as bitboards), the player to move, rochade, en passant, the
+ * kings, check and the hash, together with the attack maps derived from them.
+ * Moves are made and taken back in place. Everything that belongs to a game
+ * (record, result, remis and listeners) is kept by {@link Board}, so a search
+ * can work on a copy of the position only.
+ * 
+ * @author Fabian Jordan (0855941)
+ * @author Wolfgang Kuellinger (0955711)
+ * 
+ */
+public class Position {
+	/** The complete board and its figures */
+	final byte[] figures;
+	/** One mask per type of figure and color, see {@link Bitboard#pieceIndex} */
+	final long[] pieces;
+	/** The fields occupied by WHITE [0] and BLACK [1] */
+	final long[] occupancy;
+	/** The fields attacked by the figure on each field, 0 for empty fields */
+	private final long[] attacksFrom;
+	/** The fields attacked by WHITE [0] and BLACK [1] */
+	private final long[] attacks;
+	/**
+	 * The fields whose occupation changed since the attack maps were updated
+	 * the last time
+	 */
+	private long changedFields;
+
+	/** Indicates the possibility of WHITE to perform the rochade to a */
+	boolean whiteCanRochadeA;
+	/** Indicates the possibility of WHITE to perform the rochade to h */
+	boolean whiteCanRochadeH;
+	/** Indicates the possibility of BLACK to perform the rochade to a */
+	boolean blackCanRochadeA;
+	/** Indicates the possibility of BLACK to perform the rochade to h */
+	boolean blackCanRochadeH;
+
+	/** Indicates whether WHITE is in check */
+	boolean whiteInCheck;
+	/** Indicates whether BLACK is in check */
+	boolean blackInCheck;
+	/** Gives the current position of the white king */
+	int indexWhiteKing;
+	/** Gives the current position of the black king */
+	int indexBlackKing;
+	/**
+	 * The field a pawn skipped by its last double step and can be hit en
+	 * passant on, -1 if there is none
+	 */
+	int enPassant;
+
+	/** The number of white bishops on white fields */
+	public int whiteBishopsOnWhite;
+	/** The number of white bishops on black fields */
+	public int whiteBishopsOnBlack;
+	/** The number of black bishops on white fields */
+	public int blackBishopsOnWhite;
+	/** The number of black bishops on black fields */
+	public int blackBishopsOnBlack;
+
+	/** The color of the player whose turn it is */
+	byte turn;
+	/** The Zobrist hash of the position, see {@link Zobrist} */
+	long hash;
+	/** Extracts the hit figure out of a record of {@link #saveState(byte)} */
+	private static final long UNDO_FIGURE_MASK = 127;
+
+	/**
+	 * Creates the position at the start of a game.
+	 */
+	public Position() {
+		figures = new byte[64];
+		pieces = new long[2 * Bitboard.TYPES];
+		occupancy = new long[2];
+		attacksFrom = new long[64];
+		attacks = new long[2];
+		setUpStart();
+	}
+
+	/**
+	 * Creates a copy of a position, i.e. of the current position of a game to
+	 * search it.
+	 * 
+	 * @param other
+	 *            the position to copy
+	 */
+	public Position(Position other) {
+		figures = new byte[64];
+		pieces = new long[2 * Bitboard.TYPES];
+		occupancy = new long[2];
+		attacksFrom = new long[64];
+		attacks = new long[2];
+		set(other);
+	}
+
+	/**
+	 * Copies another position into this one, no memory is allocated.
+	 * 
+	 * @param other
+	 *            the position to copy
+	 */
+	public void set(Position other) {
+		System.arraycopy(other.figures, 0, figures, 0, figures.length);
+		System.arraycopy(other.pieces, 0, pieces, 0, pieces.length);
+		System.arraycopy(other.occupancy, 0, occupancy, 0, occupancy.length);
+		System.arraycopy(other.attacksFrom, 0, attacksFrom, 0, attacksFrom.length);
+		System.arraycopy(other.attacks, 0, attacks, 0, attacks.length);
+		changedFields = other.changedFields;
+		whiteCanRochadeA = other.whiteCanRochadeA;
+		whiteCanRochadeH = other.whiteCanRochadeH;
+		blackCanRochadeA = other.blackCanRochadeA;
+		blackCanRochadeH = other.blackCanRochadeH;
+		whiteInCheck = other.whiteInCheck;
+		blackInCheck = other.blackInCheck;
+		indexWhiteKing = other.indexWhiteKing;
+		indexBlackKing = other.indexBlackKing;
+		enPassant = other.enPassant;
+		whiteBishopsOnWhite = other.whiteBishopsOnWhite;
+		whiteBishopsOnBlack = other.whiteBishopsOnBlack;
+		blackBishopsOnWhite = other.blackBishopsOnWhite;
+		blackBishopsOnBlack = other.blackBishopsOnBlack;
+		turn = other.turn;
+		hash = other.hash;
+	}
+
+	/** Sets up the position at the start of a game. */
+	public void reset() {
+		setUpStart();
+	}
+
+	private void setUpStart() {
+		figures[0] = WHITE_ROOK;
+		figures[1] = WHITE_KNIGHT;
+		figures[2] = WHITE_BISHOP;
+		figures[3] = WHITE_QUEEN;
+		figures[4] = WHITE_KING;
+		figures[5] = WHITE_BISHOP;
+		figures[6] = WHITE_KNIGHT;
+		figures[7] = WHITE_ROOK;
+		for (int i = 8; i < 16; i++)
+			figures[i] = WHITE_PAWN;
+
+		figures[56] = BLACK_ROOK;
+		figures[57] = BLACK_KNIGHT;
+		figures[58] = BLACK_BISHOP;
+		figures[59] = BLACK_QUEEN;
+		figures[60] = BLACK_KING;
+		figures[61] = BLACK_BISHOP;
+		figures[62] = BLACK_KNIGHT;
+		figures[63] = BLACK_ROOK;
+		for (int i = 48; i < 56; i++)
+			figures[i] = BLACK_PAWN;
+
+		for (int i = 16; i < 48; i++)
+			figures[i] = EMPTY;
+		updateBitboards();
+		changedFields = ~0L;
+
+		whiteCanRochadeA = true;
+		whiteCanRochadeH = true;
+		blackCanRochadeA = true;
+		blackCanRochadeH = true;
+
+		whiteInCheck = false;
+		blackInCheck = false;
+		indexWhiteKing = 4;
+		indexBlackKing = 60;
+		enPassant = -1;
+		turn = WHITE;
+
+		whiteBishopsOnWhite = 1;
+		whiteBishopsOnBlack = 1;
+		blackBishopsOnBlack = 1;
+		blackBishopsOnWhite = 1;
+
+		hash = computeHash();
+	}
+
+	/**
+	 * Derives everything else from the figures, the player to move, rochade
+	 * and en passant: kings, bishops, bitboards, check and hash.
+	 * 
+	 * @return <tt>false</tt> if a king is missing
+	 */
+	boolean setUp() {
+		whiteBishopsOnWhite = 0;
+		whiteBishopsOnBlack = 0;
+		blackBishopsOnWhite = 0;
+		blackBishopsOnBlack = 0;
+		indexWhiteKing = -1;
+		indexBlackKing = -1;
+		for (int index = 0; index < 64; index++) {
+			final byte figure = figures[index];
+			if (figure == WHITE_KING)
+				indexWhiteKing = index;
+			else if (figure == BLACK_KING)
+				indexBlackKing = index;
+			else if (figure == WHITE_BISHOP && getColorOfField(index) == WHITE)
+				whiteBishopsOnWhite++;
+			else if (figure == WHITE_BISHOP)
+				whiteBishopsOnBlack++;
+			else if (figure == BLACK_BISHOP && getColorOfField(index) == WHITE)
+				blackBishopsOnWhite++;
+			else if (figure == BLACK_BISHOP)
+				blackBishopsOnBlack++;
+		}
+		if (indexWhiteKing < 0 || indexBlackKing < 0)
+			return false;
+		updateBitboards();
+		changedFields = ~0L;
+
+		final long occupied = getOccupancy();
+		whiteInCheck = getAttackers(this, indexWhiteKing, BLACK, occupied) != 0;
+		blackInCheck = getAttackers(this, indexBlackKing, WHITE, occupied) != 0;
+
+		hash = computeHash();
+		return true;
+	}
+
+	/**
+	 * Performs a move in place for looking-forward-issues. The returned
+	 * record has to be handed to {@link #unmakeMove(int, long)} to restore the
+	 * position afterwards.
+	 * 
+	 * @param move
+	 *            the move encoded by {@link PackedMove}
+	 * @return the record that is needed to take back the move
+	 */
+	public long makeMove(int move) {
+		final int hit = PackedMove.getHit(move);
+		final long undo = saveState(hit >= 0 ? figures[hit] : EMPTY);
+
+		doMove(move);
+		return undo;
+	}
+
+	/**
+	 * Takes back a move that was performed by {@link #makeMove(int)}.
+	 * 
+	 * @param move
+	 *            the move encoded by {@link PackedMove} that was executed last
+	 * @param undo
+	 *            the record returned by <tt>makeMove(move)</tt>
+	 */
+	public void unmakeMove(int move, long undo) {
+		final byte type = PackedMove.getType(move);
+		final int source = PackedMove.getSource(move);
+		final int destination = PackedMove.getDestination(move);
+
+		setFigure(destination, EMPTY);
+		setFigure(source, type);
+		if (PackedMove.isHit(move))
+			setFigure(PackedMove.getHit(move), (byte) (undo & UNDO_FIGURE_MASK));
+
+		// take back the rook of a rochade
+		if ((type & ~BLACK) == WHITE_KING && Math.abs(destination - source) == 2) {
+			if (destination < source)
+				moveFigure(destination + 1, destination - 2);
+			else
+				moveFigure(destination - 1, destination + 1);
+		}
+		restoreState(undo);
+	}
+
+	/**
+	 * Changes the figures and the state of the board according to a move
+	 * (without history).
+	 * 
+	 * @param move
+	 *            the move encoded by {@link PackedMove}
+	 */
+	void doMove(int move) {
+		final byte type = PackedMove.getType(move);
+		final int source = PackedMove.getSource(move);
+		final int destination = PackedMove.getDestination(move);
+		final int hit = PackedMove.getHit(move);
+		final byte newFigureType = PackedMove.getNewFigureType(move);
+		final int row = destination >> 3;
+		final byte hitFigure = hit >= 0 ? figures[hit] : EMPTY;
+
+		// remove rochade, en passant and side from the hash, added again below
+		hash ^= stateHash();
+
+		// execute move
+		setFigure(source, EMPTY);
+		if (hit >= 0)
+			setFigure(hit, EMPTY);
+		setFigure(destination, type);
+		enPassant = -1;
+
+		// specify modifications by different figures
+		switch (type) {
+		case BLACK_KING:
+			indexBlackKing = destination;
+
+			// perform consequence move (i.e. rook after rochade of the king)
+			if (source == 60 && destination == 58)
+				moveFigure(56, 59);
+			else if (source == 60 && destination == 62)
+				moveFigure(63, 61);
+
+			blackCanRochadeA = false;
+			blackCanRochadeH = false;
+			break;
+
+		case WHITE_KING:
+			indexWhiteKing = destination;
+
+			if (source == 4 && destination == 2)
+				moveFigure(0, 3);
+			else if (source == 4 && destination == 6)
+				moveFigure(7, 5);
+
+			whiteCanRochadeA = false;
+			whiteCanRochadeH = false;
+			break;
+
+		case WHITE_ROOK:
+			if (source == 0)
+				whiteCanRochadeA = false;
+			else if (source == 7)
+				whiteCanRochadeH = false;
+			break;
+
+		case BLACK_ROOK:
+			if (source == 56)
+				blackCanRochadeA = false;
+			else if (source == 63)
+				blackCanRochadeH = false;
+			break;
+
+		case WHITE_PAWN:
+			if (row == 7) {
+				setFigure(destination, newFigureType);
+
+				// update amount of white bishops
+				if (newFigureType == WHITE_BISHOP) {
+					if (getColorOfField(destination) == WHITE)
+						whiteBishopsOnWhite++;
+					if (getColorOfField(destination) == BLACK)
+						whiteBishopsOnBlack++;
+				}
+			} else if (destination - source == 16) {
+				enPassant = source + 8;
+			}
+			break;
+
+		case BLACK_PAWN:
+			if (row == 0) {
+				setFigure(destination, newFigureType);
+
+				// update amount of black bishops
+				if (newFigureType == BLACK_BISHOP) {
+					if (getColorOfField(destination) == WHITE)
+						blackBishopsOnWhite++;
+					if (getColorOfField(destination) == BLACK)
+						blackBishopsOnBlack++;
+				}
+			} else if (source - destination == 16) {
+				enPassant = source - 8;
+			}
+			break;
+
+		default:
+		}
+
+		// check for figures that are hit
+		switch (hitFigure) {
+		case WHITE_ROOK:
+			if (hit == 0)
+				whiteCanRochadeA = false;
+			if (hit == 7)
+				whiteCanRochadeH = false;
+			break;
+		case BLACK_ROOK:
+			if (hit == 56)
+				blackCanRochadeA = false;
+			if (hit == 63)
+				blackCanRochadeH = false;
+			break;
+		case WHITE_BISHOP:
+			if (getColorOfField(hit) == Figure.WHITE)
+				whiteBishopsOnWhite--;
+			if (getColorOfField(hit) == Figure.BLACK)
+				whiteBishopsOnBlack--;
+			break;
+		case BLACK_BISHOP:
+			if (getColorOfField(hit) == Figure.WHITE)
+				blackBishopsOnWhite--;
+			if (getColorOfField(hit) == Figure.BLACK)
+				blackBishopsOnBlack--;
+			break;
+
+		default:
+		}
+
+		turn = flipColor(turn);
+		hash ^= stateHash();
+
+		updateCheck(type, source, destination, hit);
+	}
+
+	/**
+	 * Updates the status of check after a move. Except for moves of the king,
+	 * the opponent can only be in check by the moved figure itself or by a
+	 * sliding figure behind the left field (or the field of a pawn hit en
+	 * passant), and the moving player only by a sliding figure behind these
+	 * fields unless it was in check already. The attack maps are not used, so
+	 * they are only brought up to date when the next position is expanded.
+	 * 
+	 * @param type
+	 *            the type of the moved figure
+	 * @param source
+	 *            the index where the move started
+	 * @param destination
+	 *            the index where the move ended
+	 * @param hit
+	 *            the index of the hit figure or -1
+	 */
+	private void updateCheck(byte type, int source, int destination, int hit) {
+		final long occupied = getOccupancy();
+
+		if ((type & ~BLACK) == WHITE_KING) {
+			whiteInCheck = getAttackers(this, indexWhiteKing, BLACK, occupied) != 0;
+			blackInCheck = getAttackers(this, indexBlackKing, WHITE, occupied) != 0;
+			return;
+		}
+
+		final byte color = Figure.getColorFromType(type);
+		final int base = Bitboard.colorIndex(color) * Bitboard.TYPES;
+		final int oppBase = Bitboard.TYPES - base;
+		final int ownKing = color == WHITE ? indexWhiteKing : indexBlackKing;
+		final int oppKing = color == WHITE ? indexBlackKing : indexWhiteKing;
+		final int vacated = hit >= 0 && hit != destination ? hit : source;
+
+		// the opponent: directly by the (possibly changed) figure or discovered
+		final boolean oppInCheck = (getAttacksOfFigure(figures[destination], destination,
+				occupied) & Bitboard.bit(oppKing)) != 0
+				|| isDiscovered(oppKing, source, base, occupied)
+				|| isDiscovered(oppKing, vacated, base, occupied);
+
+		// the moving player: only if it does not resolve a check or uncovers its king
+		final boolean ownInCheck = getCheck(color) ? getAttackers(this, ownKing,
+				flipColor(color), occupied) != 0 : isDiscovered(ownKing, source, oppBase,
+				occupied) || isDiscovered(ownKing, vacated, oppBase, occupied);
+
+		if (color == WHITE) {
+			whiteInCheck = ownInCheck;
+			blackInCheck = oppInCheck;
+		} else {
+			blackInCheck = ownInCheck;
+			whiteInCheck = oppInCheck;
+		}
+	}
+
+	/**
+	 * Checks whether a sliding figure attacks a king through a field that was
+	 * left just now.
+	 * 
+	 * @param king
+	 *            the index of the king
+	 * @param vacated
+	 *            the index of the left field
+	 * @param base
+	 *            the position of the masks of the attacking color in
+	 *            <tt>pieces</tt>
+	 * @param occupied
+	 *            the mask of all occupied fields
+	 * @return <tt>true</tt> if the king is attacked along the line through
+	 *         <tt>vacated</tt>
+	 */
+	private boolean isDiscovered(int king, int vacated, int base, long occupied) {
+		final long line = Bitboard.LINE[king][vacated];
+		if (line == 0)
+			return false;
+
+		final long queens = pieces[base + 4];
+		if (((king ^ vacated) & 7) == 0 || ((king ^ vacated) & 56) == 0)
+			return (Bitboard.rookAttacks(king, occupied) & line & (pieces[base + 1] | queens)) != 0;
+		return (Bitboard.bishopAttacks(king, occupied) & line & (pieces[base + 3] | queens)) != 0;
+	}
+
+	/**
+	 * Returns the check status on the board. Finds out whether the specified
+	 * color's king is in check or not.
+	 * 
+	 * @param color
+	 *            The color of the player.
+	 * @return <tt>true</tt> if king of player <tt>color</tt> is in danger
+	 *         (check).
+	 */
+	public boolean getCheck(byte color) {
+		if (color == Figure.WHITE)
+			return whiteInCheck;
+		if (color == Figure.BLACK)
+			return blackInCheck;
+		return false;
+	}
+
+	/**
+	 * Gives the current position of the king of the given color.
+	 * 
+	 * @param color
+	 *            the color of the king
+	 * @return the index of the king
+	 */
+	public int getIndexOfKing(byte color) {
+		return color == WHITE ? indexWhiteKing : indexBlackKing;
+	}
+
+	/**
+	 * The complete battlefield and its figures
+	 * 
+	 * @return complete battlefield and its figures
+	 */
+	public byte[] getFigures() {
+		return figures;
+	}
+
+	/**
+	 * Gives the 64-bit Zobrist hash of the current position. It covers the
+	 * figures, the side to move, the rochade rights and the en passant field
+	 * and is updated incrementally by every move.
+	 * 
+	 * @return the hash of the position
+	 */
+	public long getHash() {
+		return hash;
+	}
+
+	/**
+	 * Gives the color of the player whose turn it is.
+	 * 
+	 * @return WHITE or BLACK
+	 */
+	public byte getTurn() {
+		return turn;
+	}
+
+	/**
+	 * Checks whether a field is attacked by any figure of the given color.
+	 * The attack maps are kept up to date incrementally, so this is a table
+	 * lookup in most cases.
+	 * 
+	 * @param index
+	 *            the index on the board
+	 * @param color
+	 *            the color of the attacking figures
+	 * @return <tt>true</tt> if <tt>board[index]</tt> is attacked by
+	 *         <tt>color</tt>
+	 */
+	public boolean isAttacked(int index, byte color) {
+		return (getAttacks(color) & Bitboard.bit(index)) != 0;
+	}
+
+	/**
+	 * Gives the mask of all fields attacked by the given color.
+	 * 
+	 * @param color
+	 *            the color of the attacking figures
+	 * @return the mask of all fields attacked by <tt>color</tt>
+	 */
+	public long getAttacks(byte color) {
+		if (changedFields != 0)
+			updateAttacks();
+		return attacks[Bitboard.colorIndex(color)];
+	}
+
+	/**
+	 * Gives the mask of all fields attacked by the figure at <tt>index</tt>,
+	 * including fields occupied by figures of its own color.
+	 * 
+	 * @param index
+	 *            the index on the board
+	 * @return the mask of all fields attacked from <tt>index</tt>, 0 if the
+	 *         field is empty
+	 */
+	public long getAttacksFrom(int index) {
+		if (changedFields != 0)
+			updateAttacks();
+		return attacksFrom[index];
+	}
+
+	/**
+	 * Gives the mask of all fields occupied by the given figure.
+	 * 
+	 * @param figure
+	 *            the figure (not <tt>EMPTY</tt>)
+	 * @return the mask of all fields occupied by <tt>figure</tt>
+	 */
+	public long getPieces(byte figure) {
+		return pieces[Bitboard.pieceIndex(figure)];
+	}
+
+	/**
+	 * Gives the mask of all fields occupied by the given color.
+	 * 
+	 * @param color
+	 *            the color
+	 * @return the mask of all fields occupied by figures of <tt>color</tt>
+	 */
+	public long getOccupancy(byte color) {
+		return occupancy[Bitboard.colorIndex(color)];
+	}
+
+	/**
+	 * Gives the mask of all occupied fields.
+	 * 
+	 * @return the mask of all occupied fields
+	 */
+	public long getOccupancy() {
+		return occupancy[0] | occupancy[1];
+	}
+
+	@Override
+	public String toString() {
+		byte figure;
+		StringBuffer sb = new StringBuffer();
+		sb.append("   ===========================================");
+		sb.append("\n");
+
+		for (int i = 7; i >= 0; i--) {
+			sb.append(" ");
+			sb.append(i + 1);
+			sb.append(" ||");
+			for (int j = 0; j <= 7; j++) {
+				figure = figures[(i << 3) + j];
+				sb.append(" ");
+				if (figure != EMPTY) {
+					sb.append(Figure.getFigureName(figure));
+				} else {
+					sb.append("  ");
+				}
+				sb.append(" |");
+			}
+			if (i > 0) {
+				sb.append("|\n --||----|----|----|----|----|----|----|----||\n");
+			}
+		}
+		sb.append("|\n   ===========================================\n");
+		sb.append("      a  | b  | c  | d  | e  | f  | g  | h");
+		return sb.toString();
+	}
+
+	/**
+	 * Sets a position at the board to the given figure.
+	 * 
+	 * @param index
+	 *            the chosen index at the board
+	 * @param figure
+	 *            the figure that is inserted at this position
+	 */
+	private void setFigure(int index, byte figure) {
+		final long bit = Bitboard.bit(index);
+		final byte old = figures[index];
+
+		if (old != EMPTY) {
+			pieces[Bitboard.pieceIndex(old)] ^= bit;
+			occupancy[Bitboard.colorIndex(old)] ^= bit;
+			hash ^= Zobrist.PIECES[Bitboard.pieceIndex(old)][index];
+		}
+		if (figure != EMPTY) {
+			pieces[Bitboard.pieceIndex(figure)] |= bit;
+			occupancy[Bitboard.colorIndex(figure)] |= bit;
+			hash ^= Zobrist.PIECES[Bitboard.pieceIndex(figure)][index];
+		}
+		figures[index] = figure;
+		changedFields |= bit;
+	}
+
+	/**
+	 * Brings the attack maps up to date. Only the figures on changed fields
+	 * and the sliding figures whose attacks crossed a changed field are
+	 * recalculated.
+	 */
+	private void updateAttacks() {
+		final long occupied = getOccupancy();
+		long affected = changedFields;
+
+		long sliders = (pieces[1] | pieces[3] | pieces[4] | pieces[7] | pieces[9] | pieces[10])
+				& ~changedFields;
+		while (sliders != 0) {
+			int i = Long.numberOfTrailingZeros(sliders);
+			sliders &= sliders - 1;
+			if ((attacksFrom[i] & changedFields) != 0)
+				affected |= Bitboard.bit(i);
+		}
+
+		while (affected != 0) {
+			int i = Long.numberOfTrailingZeros(affected);
+			affected &= affected - 1;
+			attacksFrom[i] = figures[i] == EMPTY ? 0 : getAttacksOfFigure(figures[i], i, occupied);
+		}
+
+		for (int color = 0; color < 2; color++) {
+			long a = 0;
+			long own = occupancy[color];
+			while (own != 0) {
+				a |= attacksFrom[Long.numberOfTrailingZeros(own)];
+				own &= own - 1;
+			}
+			attacks[color] = a;
+		}
+		changedFields = 0;
+	}
+
+	/**
+	 * Calculates the fields a figure attacks.
+	 * 
+	 * @param figure
+	 *            the figure (not <tt>EMPTY</tt>)
+	 * @param index
+	 *            the index of the figure
+	 * @param occupied
+	 *            the mask of all occupied fields
+	 * @return the mask of all fields attacked by <tt>figure</tt>
+	 */
+	private static long getAttacksOfFigure(byte figure, int index, long occupied) {
+		switch (figure & ~BLACK) {
+		case WHITE_PAWN:
+			return Bitboard.PAWN_ATTACKS[Bitboard.colorIndex(figure)][index];
+		case WHITE_KNIGHT:
+			return Bitboard.KNIGHT_ATTACKS[index];
+		case WHITE_KING:
+			return Bitboard.KING_ATTACKS[index];
+		case WHITE_ROOK:
+			return Bitboard.rookAttacks(index, occupied);
+		case WHITE_BISHOP:
+			return Bitboard.bishopAttacks(index, occupied);
+		default:
+			return Bitboard.queenAttacks(index, occupied);
+		}
+	}
+
+	/**
+	 * Moves a figure without any further modifications of the state (i.e. the
+	 * rook of a rochade).
+	 * 
+	 * @param source
+	 *            the index the figure is taken from
+	 * @param destination
+	 *            the index the figure is put to
+	 */
+	private void moveFigure(int source, int destination) {
+		setFigure(destination, figures[source]);
+		setFigure(source, EMPTY);
+	}
+
+	/**
+	 * Packs the state of the board that can not be restored out of a move
+	 * into a single record. From the lowest bit upwards: hit figure (7 bits),
+	 * rochade (4), en passant field + 1 (7), white king (6), black king (6),
+	 * bishop counters (4 x 4), check (2), four bits left to the state of the
+	 * game (see {@link Board}), turn (1).
+	 * 
+	 * @param hitFigure
+	 *            the figure that is hit by the following move or
+	 *            <tt>EMPTY</tt>
+	 * @return the record of the current state
+	 */
+	long saveState(byte hitFigure) {
+		long undo = hitFigure;
+		undo |= (whiteCanRochadeA ? 1L : 0) << 7;
+		undo |= (whiteCanRochadeH ? 1L : 0) << 8;
+		undo |= (blackCanRochadeA ? 1L : 0) << 9;
+		undo |= (blackCanRochadeH ? 1L : 0) << 10;
+		undo |= (long) (enPassant + 1) << 11;
+		undo |= (long) indexWhiteKing << 18;
+		undo |= (long) indexBlackKing << 24;
+		undo |= (long) whiteBishopsOnWhite << 30;
+		undo |= (long) whiteBishopsOnBlack << 34;
+		undo |= (long) blackBishopsOnWhite << 38;
+		undo |= (long) blackBishopsOnBlack << 42;
+		undo |= (whiteInCheck ? 1L : 0) << 46;
+		undo |= (blackInCheck ? 1L : 0) << 47;
+		undo |= (turn == BLACK ? 1L : 0) << 52;
+		return undo;
+	}
+
+	/**
+	 * Restores the state of the board out of a record built by
+	 * {@link #saveState(byte)}.
+	 * 
+	 * @param undo
+	 *            the record
+	 */
+	void restoreState(long undo) {
+		hash ^= stateHash();
+		whiteCanRochadeA = (undo & (1L << 7)) != 0;
+		whiteCanRochadeH = (undo & (1L << 8)) != 0;
+		blackCanRochadeA = (undo & (1L << 9)) != 0;
+		blackCanRochadeH = (undo & (1L << 10)) != 0;
+		enPassant = (int) ((undo >>> 11) & 127) - 1;
+		indexWhiteKing = (int) ((undo >>> 18) & 63);
+		indexBlackKing = (int) ((undo >>> 24) & 63);
+		whiteBishopsOnWhite = (int) ((undo >>> 30) & 15);
+		whiteBishopsOnBlack = (int) ((undo >>> 34) & 15);
+		blackBishopsOnWhite = (int) ((undo >>> 38) & 15);
+		blackBishopsOnBlack = (int) ((undo >>> 42) & 15);
+		whiteInCheck = (undo & (1L << 46)) != 0;
+		blackInCheck = (undo & (1L << 47)) != 0;
+		turn = (undo & (1L << 52)) != 0 ? BLACK : WHITE;
+		hash ^= stateHash();
+	}
+
+	/**
+	 * Calculates the part of the hash that does not depend on the figures.
+	 * 
+	 * @return the XOR of the keys of rochade rights, en passant and side
+	 */
+	long stateHash() {
+		int rochade = (whiteCanRochadeA ? 1 : 0) | (whiteCanRochadeH ? 2 : 0)
+				| (blackCanRochadeA ? 4 : 0) | (blackCanRochadeH ? 8 : 0);
+		long h = Zobrist.ROCHADE[rochade];
+		if (enPassant >= 0)
+			h ^= Zobrist.EN_PASSANT[enPassant & 7];
+		if (turn == BLACK)
+			h ^= Zobrist.BLACK_TO_MOVE;
+		return h;
+	}
+
+	/**
+	 * Calculates the hash of the position from scratch.
+	 * 
+	 * @return the hash of the position
+	 */
+	private long computeHash() {
+		long h = stateHash();
+		for (int i = 0; i < 64; i++) {
+			if (figures[i] != EMPTY)
+				h ^= Zobrist.PIECES[Bitboard.pieceIndex(figures[i])][i];
+		}
+		return h;
+	}
+
+	/**
+	 * Rebuilds all masks out of <tt>figures</tt>.
+	 */
+	private void updateBitboards() {
+		Arrays.fill(pieces, 0);
+		Arrays.fill(occupancy, 0);
+		for (int i = 0; i < 64; i++) {
+			if (figures[i] != EMPTY) {
+				pieces[Bitboard.pieceIndex(figures[i])] |= Bitboard.bit(i);
+				occupancy[Bitboard.colorIndex(figures[i])] |= Bitboard.bit(i);
+			}
+		}
+	}
+}
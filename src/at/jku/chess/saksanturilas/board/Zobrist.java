@@ -0,0 +1,42 @@
+package at.jku.chess.saksanturilas.board;
+
+import java.util.Random;
+
+/**
+ * Random keys for the 64-bit hash of a position. The hash of a board is the
+ * XOR of the keys of all figures on their fields, the rochade rights, the
+ * column of the en passant field and the side to move, so it can be updated
+ * incrementally with every change of the board.
+ *
+ * @author Fabian Jordan (0855941)
+ * @author Wolfgang Kuellinger (0955711)
+ *
+ */
+public class Zobrist {
+	/** One key per figure (see {@link Bitboard#pieceIndex}) and field */
+	static final long[][] PIECES = new long[2 * Bitboard.TYPES][64];
+	/** One key per combination of the four rochade rights */
+	static final long[] ROCHADE = new long[16];
+	/** One key per column of the en passant field */
+	static final long[] EN_PASSANT = new long[8];
+	/** Toggled whenever the side to move changes */
+	static final long BLACK_TO_MOVE;
+
+	/** Fixed seed, so the hashes are the same in every run */
+	private static final long SEED = 0x1D0B5EEDL;
+
+	static {
+		final Random random = new Random(SEED);
+		for (long[] keys : PIECES)
+			for (int i = 0; i < keys.length; i++)
+				keys[i] = random.nextLong();
+		for (int i = 0; i < ROCHADE.length; i++)
+			ROCHADE[i] = random.nextLong();
+		for (int i = 0; i < EN_PASSANT.length; i++)
+			EN_PASSANT[i] = random.nextLong();
+		BLACK_TO_MOVE = random.nextLong();
+	}
+
+	private Zobrist() {
+	}
+}
@@ -30,8 +30,6 @@ public class Move {
 	 * base line
 	 */
 	private byte newFigureType;
-	/** The whole battlefield */
-	private byte[] figures;
 	/** The index where the move starts */
 	protected int source;
 	/** The index where the move ends */
@@ -58,11 +56,25 @@ public class Move {
 		this.source = source;
 		this.destination = destination;
 
-		this.figures = board.getFigures();
-		this.hit = figures[destination] == EMPTY ? -1 : destination;
+		this.hit = board.getFigures()[destination] == EMPTY ? -1 : destination;
 		this.newFigureType = EMPTY;
 	}
 
+	/**
+	 * Builds the move out of its encoded form.
+	 * 
+	 * @param move
+	 *            the move encoded by {@link PackedMove}
+	 */
+	public Move(int move) {
+		this.type = PackedMove.getType(move);
+		this.color = Figure.getColorFromType(type);
+		this.source = PackedMove.getSource(move);
+		this.destination = PackedMove.getDestination(move);
+		this.hit = PackedMove.getHit(move);
+		this.newFigureType = PackedMove.getNewFigureType(move);
+	}
+
 	/**
 	 * Gives back the color of this move.
 	 * 
@@ -173,6 +185,23 @@ public class Move {
 		this.newFigureType = newFigureType;
 	}
 
+	/**
+	 * Encodes this move (see {@link PackedMove}). Remis moves can not be
+	 * encoded.
+	 * 
+	 * @return the encoded move
+	 */
+	public int toPacked() {
+		int move;
+		if (hit < 0)
+			move = PackedMove.create(type, source, destination);
+		else if (hit == destination)
+			move = PackedMove.createHit(type, source, destination);
+		else
+			move = PackedMove.createEnPassant(type, source, destination);
+		return PackedMove.withNewFigureType(move, newFigureType);
+	}
+
 	@Override
 	public boolean equals(Object obj) {
 		Move move;
@@ -0,0 +1,85 @@
+package at.jku.chess.saksanturilas.move;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A reusable list of moves encoded by {@link PackedMove}. The search keeps one
+ * list per ply and refills it in place, so no memory is allocated per
+ * generated move.
+ *
+ * @author Fabian Jordan (0855941)
+ * @author Wolfgang Kuellinger (0955711)
+ *
+ */
+public class MoveList {
+	/** More than the maximum number of moves in any position */
+	public static final int CAPACITY = 256;
+
+	private final int[] moves;
+	private int size;
+
+	public MoveList() {
+		moves = new int[CAPACITY];
+		size = 0;
+	}
+
+	/**
+	 * Appends a move.
+	 *
+	 * @param move
+	 *            the encoded move
+	 */
+	public void add(int move) {
+		moves[size++] = move;
+	}
+
+	/**
+	 * @param index
+	 *            the position in the list
+	 * @return the encoded move at <tt>index</tt>
+	 */
+	public int get(int index) {
+		return moves[index];
+	}
+
+	/**
+	 * Replaces a move, i.e. to sort the list in place.
+	 *
+	 * @param index
+	 *            the position in the list
+	 * @param move
+	 *            the encoded move
+	 */
+	public void set(int index, int move) {
+		moves[index] = move;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes all moves, the memory is kept.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Builds <tt>Move</tt> objects out of all moves of this list, i.e. for the
+	 * user interface.
+	 *
+	 * @return a new list of <tt>Move</tt> objects
+	 */
+	public List<Move> toMoves() {
+		List<Move> list = new ArrayList<Move>(size);
+		for (int i = 0; i < size; i++)
+			list.add(new Move(moves[i]));
+		return list;
+	}
+}
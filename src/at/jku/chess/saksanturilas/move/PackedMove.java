@@ -0,0 +1,122 @@
+package at.jku.chess.saksanturilas.move;
+
+/**
+ * Encodes a ply into a single <tt>int</tt>, so the move generation and the
+ * search do not have to allocate a {@link Move} per generated move. From the
+ * lowest bit upwards: source (6 bits), destination (6), type of the moved
+ * figure (7), type of the new figure of a pawn (7), hit (1), en passant (1).
+ * A valid move is never <tt>0</tt>, so <tt>NONE</tt> can be used as "no move".
+ *
+ * @author Fabian Jordan (0855941)
+ * @author Wolfgang Kuellinger (0955711)
+ *
+ */
+public class PackedMove {
+	/** Represents no move at all */
+	public static final int NONE = 0;
+
+	private static final int HIT = 1 << 26;
+	private static final int EN_PASSANT = 1 << 27;
+
+	private PackedMove() {
+	}
+
+	/**
+	 * Encodes a move without hit.
+	 *
+	 * @param type
+	 *            the type of the moved figure
+	 * @param source
+	 *            the index where the move starts
+	 * @param destination
+	 *            the index where the move ends
+	 * @return the encoded move
+	 */
+	public static int create(byte type, int source, int destination) {
+		return source | (destination << 6) | (type << 12);
+	}
+
+	/**
+	 * Encodes a move that hits the figure at <tt>destination</tt>.
+	 *
+	 * @param type
+	 *            the type of the moved figure
+	 * @param source
+	 *            the index where the move starts
+	 * @param destination
+	 *            the index where the move ends
+	 * @return the encoded move
+	 */
+	public static int createHit(byte type, int source, int destination) {
+		return create(type, source, destination) | HIT;
+	}
+
+	/**
+	 * Encodes an en passant hit of a pawn.
+	 *
+	 * @param type
+	 *            the type of the moved pawn
+	 * @param source
+	 *            the index where the move starts
+	 * @param destination
+	 *            the index where the move ends (the field the hit pawn
+	 *            skipped)
+	 * @return the encoded move
+	 */
+	public static int createEnPassant(byte type, int source, int destination) {
+		return create(type, source, destination) | HIT | EN_PASSANT;
+	}
+
+	/**
+	 * Sets the type of figure a pawn is changed into.
+	 *
+	 * @param move
+	 *            the encoded move
+	 * @param newFigureType
+	 *            the type of the new figure
+	 * @return the encoded move including the new figure
+	 */
+	public static int withNewFigureType(int move, byte newFigureType) {
+		return move | (newFigureType << 19);
+	}
+
+	public static int getSource(int move) {
+		return move & 63;
+	}
+
+	public static int getDestination(int move) {
+		return (move >>> 6) & 63;
+	}
+
+	public static byte getType(int move) {
+		return (byte) ((move >>> 12) & 127);
+	}
+
+	public static byte getNewFigureType(int move) {
+		return (byte) ((move >>> 19) & 127);
+	}
+
+	public static boolean isHit(int move) {
+		return (move & HIT) != 0;
+	}
+
+	public static boolean isEnPassant(int move) {
+		return (move & EN_PASSANT) != 0;
+	}
+
+	/**
+	 * Gives back the index of the hit figure. A pawn hit en passant stands on
+	 * the row of the source and the column of the destination.
+	 *
+	 * @param move
+	 *            the encoded move
+	 * @return the index of the hit figure or -1 if no figure is hit
+	 */
+	public static int getHit(int move) {
+		if ((move & HIT) == 0)
+			return -1;
+		if ((move & EN_PASSANT) != 0)
+			return (getSource(move) & 56) | (getDestination(move) & 7);
+		return getDestination(move);
+	}
+}
@@ -2,6 +2,7 @@ package at.jku.chess.saksanturilas.player;
 
 import at.jku.chess.saksanturilas.board.Board;
 import at.jku.chess.saksanturilas.board.ChessUtil;
+import at.jku.chess.saksanturilas.board.Position;
 import at.jku.chess.saksanturilas.move.Move;
 import at.jku.chess.saksanturilas.ui.GameUI;
 
@@ -36,7 +37,7 @@ public abstract class AbstractPlayer {
 	 * @return a value that represents the fitness of the given board in the
 	 *         point of view of the given color.
 	 */
-	public abstract int getFitness(Board board, byte color);
+	public abstract int getFitness(Position board, byte color);
 
 	/**
 	 * Chooses a move out of all possibilities
@@ -63,6 +64,13 @@ public abstract class AbstractPlayer {
 	 */
 	public abstract String getDescription();
 
+	/**
+	 * @return <tt>true</tt> if the player is human
+	 */
+	public boolean isHumanPlayer() {
+		return isHumanPlayer;
+	}
+
 	/**
 	 * Getter for players color
 	 * 
@@ -3,6 +3,7 @@ package at.jku.chess.saksanturilas.player;
 import static at.jku.chess.saksanturilas.board.ChessUtil.canBeConsideredEqual;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 
@@ -10,19 +11,83 @@ import at.jku.chess.saksanturilas.Game;
 import at.jku.chess.saksanturilas.board.Board;
 import at.jku.chess.saksanturilas.board.ChessUtil;
 import at.jku.chess.saksanturilas.board.Figure;
+import at.jku.chess.saksanturilas.board.MovePicker;
+import at.jku.chess.saksanturilas.board.Position;
 import at.jku.chess.saksanturilas.move.Move;
+import at.jku.chess.saksanturilas.move.PackedMove;
 import at.jku.chess.saksanturilas.ui.GameUI;
 
 public class DeepIgor extends AbstractPlayer {
 
 	private static final int THRESHOLD = 43;
+	/** The default size of the transposition table in megabytes */
+	public static final int DEFAULT_HASH_MB = 16;
+	/** Every thread searches the whole tree, see {@link Thinker} */
+	public static final int LAZY_SMP = 0;
+	/** The threads split the nodes of one search, see {@link SplitSearch} */
+	public static final int YOUNG_BROTHERS = 1;
 
 	/** indicates, whether the thinker should already stop thinking or not */
-	private static boolean running;
+	static volatile boolean running;
+
+	/**
+	 * The results of searched positions, shared by all thinkers and kept from
+	 * move to move
+	 */
+	private final TranspositionTable table;
+	/** The number of thinkers searching in parallel */
+	private final int threads;
+	/** How the threads share the search */
+	private final int mode;
+	/**
+	 * The parallel search of the {@link #YOUNG_BROTHERS} mode while a move is
+	 * chosen, <tt>null</tt> otherwise
+	 */
+	private SplitSearch splitSearch;
 
 	public DeepIgor(GameUI ui) {
+		this(ui, DEFAULT_HASH_MB);
+	}
+
+	/**
+	 * @param ui
+	 *            the user interface the player is using
+	 * @param hashMB
+	 *            the size of the transposition table in megabytes
+	 */
+	public DeepIgor(GameUI ui, int hashMB) {
+		this(ui, hashMB, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param ui
+	 *            the user interface the player is using
+	 * @param hashMB
+	 *            the size of the transposition table in megabytes
+	 * @param threads
+	 *            the number of thinkers searching in parallel
+	 */
+	public DeepIgor(GameUI ui, int hashMB, int threads) {
+		this(ui, hashMB, threads, LAZY_SMP);
+	}
+
+	/**
+	 * @param ui
+	 *            the user interface the player is using
+	 * @param hashMB
+	 *            the size of the transposition table in megabytes
+	 * @param threads
+	 *            the number of threads searching in parallel
+	 * @param mode
+	 *            how the threads share the search, {@link #LAZY_SMP} or
+	 *            {@link #YOUNG_BROTHERS}
+	 */
+	public DeepIgor(GameUI ui, int hashMB, int threads, int mode) {
 		super(ui);
 		isHumanPlayer = false;
+		table = new TranspositionTable(hashMB);
+		this.threads = Math.max(1, threads);
+		this.mode = mode;
 	}
 
 	/**
@@ -36,115 +101,118 @@ public class DeepIgor extends AbstractPlayer {
 	 *         color.
 	 */
 	@Override
-	public int getFitness(Board board, byte color) {
+	public int getFitness(Position board, byte color) {
 		/** the result */
 		int fitness = 0;
 		/** all the figures on the board */
 		byte[] figures = board.getFigures();
 
 		byte type;
+		int i;
 
-		for (int i = 0; i < figures.length; i++) {
+		// only the fields occupied by the color
+		long own = board.getOccupancy(color);
+		while (own != 0) {
+			i = Long.numberOfTrailingZeros(own);
+			own &= own - 1;
 			type = figures[i];
-			if (Figure.getColorFromType(type) == color) {
 
-				switch (type & ~Figure.BLACK) {
-				case Figure.WHITE_PAWN:
-					fitness += 10;
-					if (color == Figure.BLACK) {
+			switch (type & ~Figure.BLACK) {
+			case Figure.WHITE_PAWN:
+				fitness += 10;
+				if (color == Figure.BLACK) {
 
-						if (ChessUtil.isFree(board, i - 8)) {
-							// isolated pawn
+					if (ChessUtil.isFree(board, i - 8)) {
+						// isolated pawn
+						fitness -= 1;
+						if (figures[i - 8] == Figure.WHITE_PAWN) {
+							// isolated by another opponents pawn
 							fitness -= 1;
-							if (figures[i - 8] == Figure.WHITE_PAWN) {
-								// isolated by another opponents pawn
-								fitness -= 1;
-							} else if (figures[i - 8] == Figure.BLACK_PAWN) {
-								// not really isolated, friend ahead
-								fitness += 1;
-							}
-						}
-
-						// backups by other pawns behind
-						if (figures[i + 7] == Figure.BLACK_PAWN) {
-							fitness += 1;
-						}
-						if (ChessUtil.isValidField(i + 9)
-								&& figures[i + 9] == Figure.BLACK_PAWN) {
+						} else if (figures[i - 8] == Figure.BLACK_PAWN) {
+							// not really isolated, friend ahead
 							fitness += 1;
 						}
+					}
 
-					} else {
+					// backups by other pawns behind
+					if (figures[i + 7] == Figure.BLACK_PAWN) {
+						fitness += 1;
+					}
+					if (ChessUtil.isValidField(i + 9)
+							&& figures[i + 9] == Figure.BLACK_PAWN) {
+						fitness += 1;
+					}
 
-						if (ChessUtil.isFree(board, i + 8)) {
-							// isolated pawn
-							fitness -= 1;
-							if (figures[i + 8] == Figure.BLACK_PAWN) {
-								// isolated by another opponents pawn
-								fitness -= 1;
-							} else if (figures[i + 8] == Figure.WHITE_PAWN) {
-								// not really isolated, friend ahead
-								fitness += 1;
-							}
-						}
+				} else {
 
-						// backups by other pawns behind
-						if (figures[i - 7] == Figure.WHITE_PAWN) {
-							fitness += 1;
-						}
-						if (ChessUtil.isValidField(i - 9)
-								&& figures[i - 9] == Figure.WHITE_PAWN) {
+					if (ChessUtil.isFree(board, i + 8)) {
+						// isolated pawn
+						fitness -= 1;
+						if (figures[i + 8] == Figure.BLACK_PAWN) {
+							// isolated by another opponents pawn
+							fitness -= 1;
+						} else if (figures[i + 8] == Figure.WHITE_PAWN) {
+							// not really isolated, friend ahead
 							fitness += 1;
 						}
+					}
 
+					// backups by other pawns behind
+					if (figures[i - 7] == Figure.WHITE_PAWN) {
+						fitness += 1;
+					}
+					if (ChessUtil.isValidField(i - 9)
+							&& figures[i - 9] == Figure.WHITE_PAWN) {
+						fitness += 1;
 					}
-					break;
 
-				case Figure.WHITE_ROOK:
-					fitness += 50;
-					break;
+				}
+				break;
 
-				case Figure.WHITE_BISHOP:
-					if (ChessUtil.getColorOfField(i) == Figure.BLACK) {
-						// I'm the bishop on black
-						if (color == Figure.BLACK) {
-							// I'm the black bishop on black
-							fitness -= board.whiteBishopsOnBlack * 2;
-							fitness += board.blackBishopsOnWhite * 2;
-						} else {
-							// I'm the white bishop on black
-							fitness -= board.blackBishopsOnWhite * 2;
-							fitness += board.whiteBishopsOnBlack * 2;
-						}
+			case Figure.WHITE_ROOK:
+				fitness += 50;
+				break;
 
+			case Figure.WHITE_BISHOP:
+				if (ChessUtil.getColorOfField(i) == Figure.BLACK) {
+					// I'm the bishop on black
+					if (color == Figure.BLACK) {
+						// I'm the black bishop on black
+						fitness -= board.whiteBishopsOnBlack * 2;
+						fitness += board.blackBishopsOnWhite * 2;
 					} else {
-						// I'm the bishop on white
-						if (color == Figure.BLACK) {
-							// I'm the black bishop on white
-							fitness -= board.whiteBishopsOnWhite * 2;
-							fitness += board.blackBishopsOnBlack * 2;
-						} else {
-							// I'm the white bishop on white
-							fitness -= board.blackBishopsOnWhite * 2;
-							fitness += board.whiteBishopsOnBlack * 2;
-						}
+						// I'm the white bishop on black
+						fitness -= board.blackBishopsOnWhite * 2;
+						fitness += board.whiteBishopsOnBlack * 2;
 					}
-					fitness += 30;
-					break;
 
-				case Figure.WHITE_KNIGHT:
-					fitness += 30;
-					break;
+				} else {
+					// I'm the bishop on white
+					if (color == Figure.BLACK) {
+						// I'm the black bishop on white
+						fitness -= board.whiteBishopsOnWhite * 2;
+						fitness += board.blackBishopsOnBlack * 2;
+					} else {
+						// I'm the white bishop on white
+						fitness -= board.blackBishopsOnWhite * 2;
+						fitness += board.whiteBishopsOnBlack * 2;
+					}
+				}
+				fitness += 30;
+				break;
 
-				case Figure.WHITE_QUEEN:
-					fitness += 100;
-					break;
+			case Figure.WHITE_KNIGHT:
+				fitness += 30;
+				break;
 
-				case Figure.WHITE_KING:
-					fitness += 10000;
-					break;
+			case Figure.WHITE_QUEEN:
+				fitness += 100;
+				break;
+
+			case Figure.WHITE_KING:
+				fitness += 10000;
+				break;
 
-				}
 			}
 		}
 
@@ -157,11 +225,11 @@ public class DeepIgor extends AbstractPlayer {
 	public Move chooseMove(Board board, byte color, int milliSeconds,
 			Random random) {
 
-		final ArrayList<Thinker> thinker = new ArrayList<Thinker>();
+		final ArrayList<Move> rootMoves = new ArrayList<Move>();
+		table.newSearch();
 
 		for (Move m : board.getValidMoves(color)) {
-			Board b = board.cloneIncompletely();
-			if (b.getCheck(ChessUtil.flipColor(color))) {
+			if (board.getCheck(ChessUtil.flipColor(color))) {
 				if (Game.DEBUG)
 					System.err
 							.println("this color is in check after one move: "
@@ -169,24 +237,33 @@ public class DeepIgor extends AbstractPlayer {
 				continue;
 			}
 			if (m.getRemis() == Move.REMIS_ACCEPT)
-				if (evaluateBoard(b, color, 0) < THRESHOLD)
+				if (evaluateBoard(board, color, 0) < THRESHOLD)
 					return m;
 			if (m.getRemis() == Move.REMIS_REJECT)
-				if (evaluateBoard(b, color, 0) >= THRESHOLD)
+				if (evaluateBoard(board, color, 0) >= THRESHOLD)
 					return m;
 			if (m.getRemis() == Move.REMIS_OFFER) {
 				continue;
 			}
 
-			b.executeMove(m, true);
-			thinker.add(new Thinker(b, this, ChessUtil.flipColor(color), m));
+			rootMoves.add(m);
 		}
 
-		ArrayList<EvalResult> resultList = new ArrayList<DeepIgor.EvalResult>(
-				thinker.size());
-
-		for (Thinker t : thinker)
-			t.start();
+		// every thinker searches all moves on its own copy of the board, they
+		// only share the transposition table and the deepest finished result
+		final SearchResult result = new SearchResult(rootMoves);
+		int count = rootMoves.isEmpty() ? 0 : threads;
+		if (count > 0 && mode == YOUNG_BROTHERS) {
+			// one thinker runs the search, the others help at split points
+			splitSearch = new SplitSearch(this, table, count - 1);
+			count = 1;
+		}
+		final Thinker[] thinker = new Thinker[count];
+		running = true;
+		for (int i = 0; i < thinker.length; i++) {
+			thinker[i] = new Thinker(new Position(board), this, color, result, i);
+			thinker[i].start();
+		}
 
 		try {
 			Thread.sleep(milliSeconds);
@@ -209,11 +286,15 @@ public class DeepIgor extends AbstractPlayer {
 				e.printStackTrace();
 			}
 		}
-
-		for (Thinker t : thinker) {
-			resultList.add(t.getBestMove());
+		if (splitSearch != null) {
+			splitSearch.shutdown();
+			splitSearch = null;
 		}
 
+		final List<EvalResult> resultList = result.getResults();
+		if (Game.DEBUG)
+			System.out.printf("depth %d\n", result.getDepth());
+
 		int qual = Integer.MIN_VALUE;
 		Move bestMove = null;
 
@@ -231,7 +312,7 @@ public class DeepIgor extends AbstractPlayer {
 
 			if (Game.DEBUG)
 				System.out.printf(
-						"Thinker %5d (move: %s) thinks %3d  (qual = %3d)\n",
+						"Move %5d (move: %s) thinks %3d  (qual = %3d)\n",
 						i++, er.move, er.quality, qual);
 		}
 
@@ -251,36 +332,128 @@ public class DeepIgor extends AbstractPlayer {
 		return "A super intelligent artificial player.";
 	}
 
-	private int evaluateBoard(Board board, byte myColor, int level) {
+	private int evaluateBoard(Position board, byte myColor, int level) {
+		return evaluateBoard(board, myColor, level,
+				ensurePickers(new MovePicker[0], level));
+	}
+
+	/**
+	 * Evaluates the board by searching <tt>level</tt> plies deep.
+	 * 
+	 * @param pickers
+	 *            one reusable move picker per ply, at least <tt>level</tt>
+	 *            pickers
+	 */
+	private int evaluateBoard(Position board, byte myColor, int level,
+			MovePicker[] pickers) {
 		return evalRecursive(board, myColor, level, Integer.MIN_VALUE,
-				Integer.MAX_VALUE);
+				Integer.MAX_VALUE, pickers);
+	}
+
+	/**
+	 * Evaluates a root move for the player who made it, only as exactly as
+	 * needed: a move worse than <tt>best</tt> gets an upper bound, a move as
+	 * good as <tt>best</tt> or better its exact quality, so equal moves can be
+	 * chosen randomly. A move the opponent cannot answer is the best one.
+	 * 
+	 * @param board
+	 *            the board after the root move
+	 * @param oppColor
+	 *            the color of the opponent, who is to move
+	 * @param best
+	 *            the quality of the best root move so far
+	 */
+	private int evaluateRoot(Position board, byte oppColor, int level,
+			int best, MovePicker[] pickers) {
+		final int beta = best == Integer.MIN_VALUE ? Integer.MAX_VALUE : 1 - best;
+		final int quality = splitSearch != null ? splitSearch.search(board,
+				oppColor, level, -Integer.MAX_VALUE, beta) : evalRecursive(board,
+				oppColor, level, -Integer.MAX_VALUE, beta, pickers);
+		return quality == Integer.MIN_VALUE ? Integer.MAX_VALUE : -quality;
+	}
+
+	/**
+	 * Makes sure there is one move picker for each of <tt>levels</tt> plies.
+	 * The pickers keep their killer moves when they are reused.
+	 * 
+	 * @param pickers
+	 *            the pickers that already exist
+	 * @param levels
+	 *            the number of plies
+	 * @return <tt>pickers</tt> or a larger copy of it
+	 */
+	static MovePicker[] ensurePickers(MovePicker[] pickers, int levels) {
+		if (pickers.length >= levels)
+			return pickers;
+		MovePicker[] result = Arrays.copyOf(pickers, levels);
+		for (int i = pickers.length; i < levels; i++)
+			result[i] = new MovePicker();
+		return result;
 	}
 
-	private int evalRecursive(Board board, byte myColor, int level, int alpha,
-			int beta) {
+	/**
+	 * Evaluates the board without searching.
+	 * 
+	 * @return the fitness of <tt>myColor</tt> minus the one of its opponent
+	 */
+	int evaluateLeaf(Position board, byte myColor) {
+		int myFitness = getFitness(board, myColor);
+		int oppFitness = getFitness(board, ChessUtil.flipColor(myColor));
+		int r = myFitness - oppFitness;
+		return r;
+	}
+
+	private int evalRecursive(Position board, byte myColor, int level, int alpha,
+			int beta, MovePicker[] pickers) {
 		byte oppColor = ChessUtil.flipColor(myColor);
-		if (level == 0 || !running) {
-			int myFitness = getFitness(board, myColor);
-			int oppFitness = getFitness(board, oppColor);
-			int r = myFitness - oppFitness;
-			return r;
+		if (level == 0 || !running)
+			return evaluateLeaf(board, myColor);
+
+		// a position searched deep enough before may answer without a search
+		final long hash = board.getHash();
+		final long entry = table.probe(hash);
+		int bestMove = PackedMove.NONE;
+		if (entry != 0) {
+			bestMove = TranspositionTable.getMove(entry);
+			if (TranspositionTable.getDepth(entry) >= level) {
+				int score = TranspositionTable.getScore(entry);
+				int bound = TranspositionTable.getBound(entry);
+				if (bound == TranspositionTable.EXACT
+						|| (bound == TranspositionTable.LOWER && score >= beta)
+						|| (bound == TranspositionTable.UPPER && score <= alpha))
+					return score;
+			}
 		}
+		final int originalAlpha = alpha;
 
-		List<Move> validMoves = board.getValidMoves(myColor);
+		// the moves are generated stage by stage, a cutoff skips the rest
+		final MovePicker picker = pickers[level - 1];
+		picker.init(board, myColor, bestMove);
 		int localAlpha = Integer.MIN_VALUE;
-		for (Move m : validMoves) {
-			Board tmp = board.cloneIncompletely();
-			tmp.executeMove(m, false);
-			int i = -evalRecursive(tmp, oppColor, level - 1, -beta, -alpha);
+		int m;
+		while ((m = picker.next()) != PackedMove.NONE) {
+			long undo = board.makeMove(m);
+			int i = -evalRecursive(board, oppColor, level - 1, -beta, -alpha,
+					pickers);
+			board.unmakeMove(m, undo);
 
 			if (i > localAlpha) {
 				if (i > alpha)
 					alpha = i;
 				localAlpha = i;
-				if (alpha >= beta)
+				bestMove = m;
+				if (alpha >= beta) {
+					picker.storeKiller(m);
 					break;
+				}
 			}
 		}
+
+		// the result of an interrupted search is not reliable
+		if (running)
+			table.store(hash, level, localAlpha >= beta ? TranspositionTable.LOWER
+					: localAlpha > originalAlpha ? TranspositionTable.EXACT
+							: TranspositionTable.UPPER, localAlpha, bestMove);
 		return localAlpha;
 	}
 
@@ -294,79 +467,147 @@ public class DeepIgor extends AbstractPlayer {
 		}
 	}
 
+	/**
+	 * The deepest finished search of the root moves, shared by all thinkers.
+	 */
+	private static class SearchResult {
+		private final Move[] moves;
+		private int depth;
+		private List<EvalResult> results;
+
+		public SearchResult(List<Move> moves) {
+			this.moves = moves.toArray(new Move[moves.size()]);
+			this.depth = 0;
+			this.results = new ArrayList<EvalResult>();
+		}
+
+		/**
+		 * Takes the qualities of all root moves if no thinker finished a
+		 * deeper search yet.
+		 */
+		public synchronized void publish(int depth, int[] qualities) {
+			if (depth <= this.depth)
+				return;
+			final ArrayList<EvalResult> list = new ArrayList<EvalResult>(
+					moves.length);
+			for (int i = 0; i < moves.length; i++)
+				list.add(new EvalResult(qualities[i], moves[i]));
+			this.depth = depth;
+			this.results = list;
+		}
+
+		/**
+		 * @return the deepest finished search in plies, <tt>0</tt> if none
+		 */
+		public synchronized int getDepth() {
+			return depth;
+		}
+
+		/**
+		 * @return the qualities of the root moves of the deepest search
+		 */
+		public synchronized List<EvalResult> getResults() {
+			return results;
+		}
+	}
+
+	/**
+	 * Searches all root moves by iterative deepening (Lazy SMP). The thinkers
+	 * do not divide the work, they help each other by the transposition table:
+	 * the others find the positions one of them already searched. To spread
+	 * them over the tree every second thinker starts one ply deeper, and all
+	 * but the first try the root moves behind the best one in their own random
+	 * order. A thinker that falls behind continues at the depth after the
+	 * deepest finished one.
+	 */
 	private static class Thinker extends Thread {
-		private final Board board;
+		private final Position board;
 		private final DeepIgor player;
 		private final byte color;
-		private final Move move;
-		private EvalResult bestMove;
+		private final SearchResult result;
+		private final int id;
 
-		public Thinker(Board board, DeepIgor player, byte color, Move move) {
+		public Thinker(Position board, DeepIgor player, byte color,
+				SearchResult result, int id) {
 			this.board = board;
 			this.player = player;
 			this.color = color;
-			this.move = move;
-			this.bestMove = null;
-		}
-
-		/**
-		 * @return the best move
-		 */
-		public EvalResult getBestMove() {
-			if (bestMove == null && Game.DEBUG) {
-				System.out.printf("bestmove == null : move = %s\n", move);
-			}
-			return bestMove;
+			this.result = result;
+			this.id = id;
 		}
 
 		@Override
 		public void run() {
-			// well, of course now you run ...
-			running = true;
-			int levels = 0;
+			final Move[] rootMoves = result.moves;
+			final int n = rootMoves.length;
+			final int[] moves = new int[n];
+			final int[] order = new int[n];
+			final int[] qualities = new int[n];
 			final byte oppColor = ChessUtil.flipColor(color);
-			final List<Move> moves = board.getValidMoves(color);
-			while (running) {
-				if (moves.isEmpty()) {
-					if (Game.DEBUG) {
-						System.err.println("valid moves == empty");
-						System.err.println(move);
-						System.err.println(board);
-					}
-					bestMove = new EvalResult(Integer.MAX_VALUE, move);
-					break;
-				}
-				int[] qualities = new int[moves.size()];
-				int minQuality = Integer.MAX_VALUE;
-				int n = moves.size();
-
-				for (int i = 0; i < n; i++) {
-
-					switch (moves.get(i).getRemis()) {
-					case Move.REMIS_ACCEPT:
-					case Move.REMIS_OFFER:
-						break;
-
-					default:
-						Board tmp = board.cloneIncompletely();
-						tmp.executeMove(moves.get(i), false);
-						int f = player.evaluateBoard(tmp, oppColor, levels);
-						qualities[i] = f;
-						if (f < minQuality) {
-							minQuality = f;
-						}
-					}
+			final Random random = new Random(id);
+			for (int i = 0; i < n; i++) {
+				moves[i] = rootMoves[i].toPacked();
+				order[i] = i;
+			}
+			if (id > 0)
+				shuffle(order, 0, random);
+
+			MovePicker[] pickers = new MovePicker[0];
+			int depth = 1 + (id & 1);
+			// the first thinker finishes one ply in any case
+			while (running || depth == 1) {
+				pickers = ensurePickers(pickers, depth - 1);
+				int best = Integer.MIN_VALUE;
+				int k;
+				for (k = 0; k < n; k++) {
+					final int i = order[k];
+					long undo = board.makeMove(moves[i]);
+					qualities[i] = player.evaluateRoot(board, oppColor,
+							depth - 1, best, pickers);
+					board.unmakeMove(moves[i], undo);
+					if (qualities[i] > best)
+						best = qualities[i];
 
 					// quite Russian but effective ;)
-					if (!running)
+					if (!running && depth > 1)
 						break;
 				}
+				if (k < n)
+					break;
 
-				bestMove = new EvalResult(minQuality, move);
-				levels++;
+				result.publish(depth, qualities);
+				sortByQuality(order, qualities);
+				if (id > 0)
+					shuffle(order, 1, random);
+				depth = Math.max(depth + 1, result.getDepth() + 1);
 			}
 			if (Game.DEBUG)
-				System.out.println(levels);
+				System.out.printf("thinker %d reached %d\n", id, depth - 1);
+		}
+
+		/**
+		 * Sorts the indices of the moves by their qualities, the best first.
+		 */
+		private static void sortByQuality(int[] order, int[] qualities) {
+			for (int k = 1; k < order.length; k++) {
+				final int i = order[k];
+				int j = k;
+				for (; j > 0 && qualities[order[j - 1]] < qualities[i]; j--)
+					order[j] = order[j - 1];
+				order[j] = i;
+			}
+		}
+
+		/**
+		 * Shuffles the indices behind <tt>from</tt>.
+		 */
+		private static void shuffle(int[] order, int from, Random random) {
+			for (int k = order.length - 1; k > from; k--) {
+				final int j = from + random.nextInt(k - from + 1);
+				final int t = order[k];
+				order[k] = order[j];
+				order[j] = t;
+			}
 		}
 	}
-}
\ No newline at end of file
+}
@@ -3,6 +3,7 @@ package at.jku.chess.saksanturilas.player;
 import java.util.Random;
 
 import at.jku.chess.saksanturilas.board.Board;
+import at.jku.chess.saksanturilas.board.Position;
 import at.jku.chess.saksanturilas.move.Move;
 import at.jku.chess.saksanturilas.ui.GameUI;
 
@@ -21,7 +22,7 @@ public class HumanPlayer extends AbstractPlayer {
 	}
 
 	@Override
-	public int getFitness(Board board, byte color) {
+	public int getFitness(Position board, byte color) {
 		return 0;
 	}
 
@@ -5,6 +5,7 @@ import java.util.Random;
 
 import at.jku.chess.saksanturilas.board.Board;
 import at.jku.chess.saksanturilas.board.ChessUtil;
+import at.jku.chess.saksanturilas.board.Position;
 import at.jku.chess.saksanturilas.move.Move;
 import at.jku.chess.saksanturilas.ui.GameUI;
 
@@ -23,7 +24,7 @@ public class RandomPlayer extends AbstractPlayer {
 	}
 
 	@Override
-	public int getFitness(Board board, byte color) {
+	public int getFitness(Position board, byte color) {
 		return 0;
 	}
 
@@ -0,0 +1,371 @@
+package at.jku.chess.saksanturilas.player;
+
+import java.util.ArrayList;
+
+import at.jku.chess.saksanturilas.board.ChessUtil;
+import at.jku.chess.saksanturilas.board.MovePicker;
+import at.jku.chess.saksanturilas.board.Position;
+import at.jku.chess.saksanturilas.move.MoveList;
+import at.jku.chess.saksanturilas.move.PackedMove;
+
+/**
+ * Parallel alpha-beta search by the Young Brothers Wait Concept. A node is
+ * searched alone until its first move (the eldest brother) is finished, so the
+ * bounds are known. If a helper is idle then, the node becomes a split point:
+ * its remaining moves are handed out one by one to the searching thread and
+ * to all helpers that join, and every finished move raises the shared alpha
+ * of the split point. A cutoff at a split point aborts the searches of all
+ * its moves, also the ones below other split points.
+ *
+ * The helpers are a fixed pool of threads that wait for split points until
+ * {@link #shutdown()}. The search itself is started by one thread, the one
+ * caller of {@link #search(Position, byte, int, int, int)} at a time. If a
+ * helper fails or the searching thread is interrupted while it waits for the
+ * helpers, the results are incomplete and the whole search is stopped.
+ *
+ * @author Fabian Jordan (0855941)
+ * @author Wolfgang Kuellinger (0955711)
+ *
+ */
+class SplitSearch {
+	/** Nodes with fewer remaining plies are not worth splitting */
+	private static final int MIN_SPLIT_LEVEL = 2;
+
+	private final DeepIgor player;
+	private final TranspositionTable table;
+	/** The split points helpers can still join, guarded by itself */
+	private final ArrayList<SplitPoint> open;
+	/** The number of helpers waiting for a split point */
+	private volatile int idle;
+	/** The state of the thread that starts the search */
+	private final Context master;
+	private final Helper[] helpers;
+
+	/**
+	 * @param player
+	 *            the player whose evaluation is used
+	 * @param table
+	 *            the transposition table shared by all threads
+	 * @param helpers
+	 *            the number of helper threads
+	 */
+	public SplitSearch(DeepIgor player, TranspositionTable table, int helpers) {
+		this.player = player;
+		this.table = table;
+		this.open = new ArrayList<SplitPoint>();
+		this.master = new Context();
+		this.helpers = new Helper[helpers];
+		for (int i = 0; i < helpers; i++) {
+			this.helpers[i] = new Helper();
+			this.helpers[i].setDaemon(true);
+			this.helpers[i].start();
+		}
+	}
+
+	/**
+	 * Stops the helpers and waits for them, a running search is stopped too.
+	 */
+	public void shutdown() {
+		for (Helper helper : helpers)
+			helper.interrupt();
+		for (Helper helper : helpers) {
+			try {
+				helper.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Evaluates the board by searching <tt>level</tt> plies deep with the
+	 * help of the idle helpers.
+	 *
+	 * @param board
+	 *            the board, it is restored when the search returns
+	 * @param myColor
+	 *            the color to move
+	 * @return the quality for <tt>myColor</tt>
+	 */
+	public int search(Position board, byte myColor, int level, int alpha,
+			int beta) {
+		return search(master, board, myColor, level, alpha, beta, null);
+	}
+
+	private int search(Context context, Position board, byte myColor,
+			int level, int alpha, int beta, SplitPoint parent) {
+		byte oppColor = ChessUtil.flipColor(myColor);
+		if (level == 0 || !DeepIgor.running || isAborted(parent))
+			return player.evaluateLeaf(board, myColor);
+
+		// a position searched deep enough before may answer without a search
+		final long hash = board.getHash();
+		final long entry = table.probe(hash);
+		int bestMove = PackedMove.NONE;
+		if (entry != 0) {
+			bestMove = TranspositionTable.getMove(entry);
+			if (TranspositionTable.getDepth(entry) >= level) {
+				int score = TranspositionTable.getScore(entry);
+				int bound = TranspositionTable.getBound(entry);
+				if (bound == TranspositionTable.EXACT
+						|| (bound == TranspositionTable.LOWER && score >= beta)
+						|| (bound == TranspositionTable.UPPER && score <= alpha))
+					return score;
+			}
+		}
+		final int originalAlpha = alpha;
+
+		context.pickers = DeepIgor.ensurePickers(context.pickers, level);
+		final MovePicker picker = context.pickers[level - 1];
+		picker.init(board, myColor, bestMove);
+		int localAlpha = Integer.MIN_VALUE;
+		int m;
+		while ((m = picker.next()) != PackedMove.NONE) {
+			long undo = board.makeMove(m);
+			int i = -search(context, board, oppColor, level - 1, -beta, -alpha,
+					parent);
+			board.unmakeMove(m, undo);
+
+			if (i > localAlpha) {
+				if (i > alpha)
+					alpha = i;
+				localAlpha = i;
+				bestMove = m;
+				if (alpha >= beta) {
+					picker.storeKiller(m);
+					break;
+				}
+			}
+
+			// the eldest brother is searched, the others may be shared
+			if (level >= MIN_SPLIT_LEVEL && idle > 0) {
+				final SplitPoint sp = new SplitPoint(parent, board, myColor,
+						level, alpha, beta, localAlpha, bestMove, picker);
+				split(context, board, sp);
+				localAlpha = sp.bestScore;
+				bestMove = sp.bestMove;
+				if (sp.cutoff)
+					picker.storeKiller(bestMove);
+				break;
+			}
+		}
+
+		// the result of an interrupted search is not reliable
+		if (DeepIgor.running && !isAborted(parent))
+			table.store(hash, level, localAlpha >= beta ? TranspositionTable.LOWER
+					: localAlpha > originalAlpha ? TranspositionTable.EXACT
+							: TranspositionTable.UPPER, localAlpha, bestMove);
+		return localAlpha;
+	}
+
+	/**
+	 * Offers the split point to the helpers, searches its moves together with
+	 * them and waits until all of them are done.
+	 */
+	private void split(Context context, Position board, SplitPoint sp) {
+		synchronized (open) {
+			open.add(sp);
+			open.notifyAll();
+		}
+		work(context, board, sp);
+		synchronized (open) {
+			open.remove(sp);
+		}
+		if (!sp.waitForHelpers())
+			DeepIgor.running = false;
+	}
+
+	/**
+	 * Searches moves of the split point until none is left.
+	 *
+	 * @param board
+	 *            the board in the position of the split point
+	 */
+	private void work(Context context, Position board, SplitPoint sp) {
+		final byte oppColor = ChessUtil.flipColor(sp.color);
+		int m;
+		while ((m = sp.next()) != PackedMove.NONE) {
+			long undo = board.makeMove(m);
+			int i = -search(context, board, oppColor, sp.level - 1, -sp.beta,
+					-sp.getAlpha(), sp);
+			board.unmakeMove(m, undo);
+			sp.update(i, m);
+		}
+	}
+
+	/**
+	 * @return whether a cutoff at the split point or at one above it made the
+	 *         search useless
+	 */
+	private static boolean isAborted(SplitPoint sp) {
+		for (; sp != null; sp = sp.parent)
+			if (sp.cutoff)
+				return true;
+		return false;
+	}
+
+	/**
+	 * The state of a searching thread.
+	 */
+	private static class Context {
+		/** One move picker per ply */
+		private MovePicker[] pickers = new MovePicker[0];
+	}
+
+	/**
+	 * A node whose moves are searched by several threads.
+	 */
+	private static class SplitPoint {
+		private final SplitPoint parent;
+		/** A copy of the position, for the helpers */
+		private final Position board;
+		private final byte color;
+		private final int level;
+		private final int beta;
+		/** The moves not handed out yet */
+		private final MoveList moves;
+		private int next;
+		private volatile int alpha;
+		private int bestScore;
+		private int bestMove;
+		private volatile boolean cutoff;
+		/** The number of helpers that joined and are not done yet */
+		private int helpers;
+
+		/**
+		 * Takes over the remaining moves of the picker.
+		 */
+		public SplitPoint(SplitPoint parent, Position board, byte color,
+				int level, int alpha, int beta, int bestScore, int bestMove,
+				MovePicker picker) {
+			this.parent = parent;
+			this.board = new Position(board);
+			this.color = color;
+			this.level = level;
+			this.alpha = alpha;
+			this.beta = beta;
+			this.bestScore = bestScore;
+			this.bestMove = bestMove;
+			this.moves = new MoveList();
+			int m;
+			while ((m = picker.next()) != PackedMove.NONE)
+				moves.add(m);
+		}
+
+		public int getAlpha() {
+			return alpha;
+		}
+
+		/**
+		 * @return the next move to search or {@link PackedMove#NONE} if none
+		 *         is left or the split point is aborted
+		 */
+		public synchronized int next() {
+			if (next == moves.size() || isAborted(this))
+				return PackedMove.NONE;
+			return moves.get(next++);
+		}
+
+		/**
+		 * @return whether a helper may still join, it should not if there is
+		 *         nothing left to do
+		 */
+		public synchronized boolean join() {
+			if (next == moves.size() || isAborted(this))
+				return false;
+			helpers++;
+			return true;
+		}
+
+		public synchronized void leave() {
+			if (--helpers == 0)
+				notifyAll();
+		}
+
+		/**
+		 * @return <tt>false</tt> if the thread was interrupted before all
+		 *         helpers were done
+		 */
+		public synchronized boolean waitForHelpers() {
+			while (helpers > 0) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Takes the quality of a searched move, unless the split point is
+		 * aborted and the quality is not reliable.
+		 */
+		public synchronized void update(int score, int move) {
+			if (isAborted(this) || score <= bestScore)
+				return;
+			bestScore = score;
+			bestMove = move;
+			if (score > alpha) {
+				alpha = score;
+				if (score >= beta)
+					cutoff = true;
+			}
+		}
+	}
+
+	/**
+	 * Waits for split points and helps searching them.
+	 */
+	private class Helper extends Thread {
+		private final Context context = new Context();
+		/** The copy of the position of the joined split point */
+		private final Position board = new Position();
+
+		@Override
+		public void run() {
+			while (true) {
+				SplitPoint sp;
+				synchronized (open) {
+					idle++;
+					try {
+						while ((sp = findSplitPoint()) == null)
+							open.wait();
+					} catch (InterruptedException e) {
+						return;
+					} finally {
+						idle--;
+					}
+				}
+				board.set(sp.board);
+				try {
+					work(context, board, sp);
+				} catch (RuntimeException e) {
+					// the split point misses a move, its result is wrong
+					DeepIgor.running = false;
+					throw e;
+				} finally {
+					sp.leave();
+				}
+			}
+		}
+
+		/**
+		 * Joins the split point nearest to the root, which has the most work
+		 * left. Has to be called holding the lock of <tt>open</tt>.
+		 */
+		private SplitPoint findSplitPoint() {
+			SplitPoint best = null;
+			for (SplitPoint sp : open)
+				if (best == null || sp.level > best.level)
+					if (sp.join()) {
+						if (best != null)
+							best.leave();
+						best = sp;
+					}
+			return best;
+		}
+	}
+}
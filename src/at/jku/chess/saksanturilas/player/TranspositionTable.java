@@ -0,0 +1,151 @@
+package at.jku.chess.saksanturilas.player;
+
+import at.jku.chess.saksanturilas.board.ChessUtil;
+import at.jku.chess.saksanturilas.move.PackedMove;
+
+/**
+ * Remembers the results of searched positions by their hash (see
+ * {@link at.jku.chess.saksanturilas.board.Position#getHash()}), so a position
+ * that is reached again (by another order of moves, by another thread, in the
+ * next iteration or the next move) is not searched again or at least starts
+ * with its best move.
+ *
+ * Each slot holds two <tt>long</tt>s: the hash XOR the data and the data
+ * itself. Threads read and write the table without locks; a slot torn by
+ * concurrent writes does not verify and is treated as empty. The data holds
+ * from the lowest bit upwards: best move (28 bits, see {@link PackedMove}),
+ * score (16), depth (6), bound (2) and the age of the search (6). A slot is
+ * replaced if it belongs to the same position, to an older search or to a
+ * shallower search.
+ *
+ * @author Fabian Jordan (0855941)
+ * @author Wolfgang Kuellinger (0955711)
+ *
+ */
+public class TranspositionTable {
+	/** The score is exact */
+	public static final int EXACT = 1;
+	/** The score is a lower bound, the search was cut off */
+	public static final int LOWER = 2;
+	/** The score is an upper bound, no move reached alpha */
+	public static final int UPPER = 3;
+
+	/** The deepest search that can be stored */
+	public static final int MAX_DEPTH = 63;
+
+	private static final long MOVE_MASK = (1L << 28) - 1;
+
+	private final long[] table;
+	private final int mask;
+	/** The age of the current search, see {@link #newSearch()} */
+	private volatile int age;
+
+	/**
+	 * @param megabytes
+	 *            the size of the table (rounded down to a power of two
+	 *            slots, see {@link ChessUtil#getHashSlots(int)})
+	 * @throws IllegalArgumentException
+	 *             if the size is less than one megabyte
+	 */
+	public TranspositionTable(int megabytes) {
+		int slots = ChessUtil.getHashSlots(megabytes);
+		table = new long[2 * slots];
+		mask = slots - 1;
+	}
+
+	/**
+	 * Starts a new search, the entries of the previous searches are kept but
+	 * replaced first.
+	 */
+	public void newSearch() {
+		age = (age + 1) & 63;
+	}
+
+	/**
+	 * Looks up a position.
+	 *
+	 * @param hash
+	 *            the hash of the position
+	 * @return the data of the entry (see {@link #getMove(long)} etc.) or
+	 *         <tt>0</tt> if the position is not stored
+	 */
+	public long probe(long hash) {
+		final int slot = ((int) hash & mask) << 1;
+		final long data = table[slot + 1];
+		if ((table[slot] ^ data) != hash)
+			return 0;
+		return data;
+	}
+
+	/**
+	 * Stores the result of a search, unless the slot holds a deeper search of
+	 * another position of the current search.
+	 *
+	 * @param hash
+	 *            the hash of the position
+	 * @param depth
+	 *            the remaining depth the position was searched with
+	 * @param bound
+	 *            {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+	 * @param score
+	 *            the score, it is not stored if it does not fit into 16 bits
+	 * @param move
+	 *            the best move or {@link PackedMove#NONE}
+	 */
+	public void store(long hash, int depth, int bound, int score, int move) {
+		if (score < Short.MIN_VALUE || score > Short.MAX_VALUE || depth > MAX_DEPTH)
+			return;
+
+		final int slot = ((int) hash & mask) << 1;
+		final long old = table[slot + 1];
+		final int current = age;
+		if ((table[slot] ^ old) != hash && old != 0 && getAge(old) == current
+				&& getDepth(old) > depth)
+			return;
+
+		final long data = (move & MOVE_MASK) | ((long) (score & 0xFFFF) << 28)
+				| ((long) depth << 44) | ((long) bound << 50) | ((long) current << 52);
+		table[slot] = hash ^ data;
+		table[slot + 1] = data;
+	}
+
+	/**
+	 * @param data
+	 *            an entry returned by {@link #probe(long)}
+	 * @return the best move or {@link PackedMove#NONE}
+	 */
+	public static int getMove(long data) {
+		return (int) (data & MOVE_MASK);
+	}
+
+	/**
+	 * @param data
+	 *            an entry returned by {@link #probe(long)}
+	 * @return the score
+	 */
+	public static int getScore(long data) {
+		return (short) (data >>> 28);
+	}
+
+	/**
+	 * @param data
+	 *            an entry returned by {@link #probe(long)}
+	 * @return the remaining depth the position was searched with
+	 */
+	public static int getDepth(long data) {
+		return (int) (data >>> 44) & 63;
+	}
+
+	/**
+	 * @param data
+	 *            an entry returned by {@link #probe(long)}
+	 * @return {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+	 */
+	public static int getBound(long data) {
+		return (int) (data >>> 50) & 3;
+	}
+
+	private static int getAge(long data) {
+		return (int) (data >>> 52) & 63;
+	}
+}
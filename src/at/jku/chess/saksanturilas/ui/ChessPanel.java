@@ -34,6 +34,7 @@ import javax.swing.JComponent;
 import at.jku.chess.saksanturilas.board.Board;
 import at.jku.chess.saksanturilas.board.BoardListener;
 import at.jku.chess.saksanturilas.board.Figure;
+import at.jku.chess.saksanturilas.board.Position;
 import at.jku.chess.saksanturilas.move.Move;
 
 /**
@@ -48,6 +49,11 @@ public class ChessPanel extends JComponent {
 	private static final long serialVersionUID = 1L;
 
 	private Board board;
+	/**
+	 * A position of the game that is shown instead of the board (i.e. out of
+	 * the history), <tt>null</tt> to show the board
+	 */
+	private Position shownPosition;
 
 	private final SwingUI parentFrame;
 
@@ -93,6 +99,9 @@ public class ChessPanel extends JComponent {
 
 			@Override
 			public void mouseClicked(MouseEvent e) {
+				// a position out of the history can only be looked at
+				if (shownPosition != null)
+					return;
 				int x = (7 - ((e.getX() - rulerSize) / tileSize));
 				int y = ((e.getY() - rulerSize) / tileSize);
 				int selection;
@@ -123,6 +132,7 @@ public class ChessPanel extends JComponent {
 		board.addBoardListener(new BoardListener() {
 			@Override
 			public void boardChanged(Board board) {
+				shownPosition = null;
 				repaint();
 			}
 		});
@@ -203,6 +213,8 @@ public class ChessPanel extends JComponent {
 		final Color color1 = (parentFrame.running) ? TILE_COLOR_1 : TILE_GRAY_1;
 		final Color color2 = (parentFrame.running) ? TILE_COLOR_2 : TILE_GRAY_2;
 		Color c = color1;
+		final Position shown = shownPosition != null ? shownPosition : board;
+		final byte[] figures = shown != null ? shown.getFigures() : null;
 
 		for (int x = 63; x >= 0; x--) {
 			x1 = (7 - (x % 8)) * tileSize + rulerSize;
@@ -218,9 +230,8 @@ public class ChessPanel extends JComponent {
 						- (2 * circleSpace), tileSize - (2 * circleSpace));
 			}
 
-			if (board != null && board.getFigures()[arrayX] != Figure.EMPTY) {
-				getFigure(board.getFigures()[arrayX]).draw(g2d, x1, y1,
-						tileSize, tileSize);
+			if (figures != null && figures[arrayX] != Figure.EMPTY) {
+				getFigure(figures[arrayX]).draw(g2d, x1, y1, tileSize, tileSize);
 			}
 
 			if (x % 8 != 0)
@@ -241,7 +252,8 @@ public class ChessPanel extends JComponent {
 		for (int x = 0; x < 64; x++) {
 			high[x] = false;
 		}
-		if (allValidMoves != null && selectedPiece != -1) {
+		if (allValidMoves != null && selectedPiece != -1
+				&& shownPosition == null) {
 			for (Move m : allValidMoves) {
 				if (m.getSource() == selectedPiece) {
 					high[m.getSource()] = true;
@@ -334,6 +346,20 @@ public class ChessPanel extends JComponent {
 		return isWhiteDown;
 	}
 
+	/**
+	 * Shows another position than the one of the board until the board
+	 * changes. Meanwhile clicks are ignored and no fields are highlighted.
+	 * 
+	 * @param position
+	 *            the position or <tt>null</tt> to show the board again
+	 */
+	public void showPosition(Position position) {
+		shownPosition = position;
+		selectedPiece = -1;
+		highlighter();
+		repaint();
+	}
+
 	public void setValidMoves(List<Move> l) {
 		allValidMoves = l;
 	}
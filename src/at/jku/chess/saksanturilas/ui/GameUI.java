@@ -124,29 +124,41 @@ public abstract class GameUI {
 		final Random seed = new Random(Calendar.getInstance().getTimeInMillis());
 		running = true;
 		AbstractPlayer curPlayer = p1;
+		boolean aborted = false;
 
 		do {
 			// STEP 1: ask player for move
 			Move m = curPlayer.chooseMove(board, curPlayer.getColor(), THINKING_TIME, seed);
 
-			// STEP 2: go to STEP 7 if game is over
+			// STEP 2: go to STEP 8 if game is over
 			if (m == null)
 				break;
 
-			// STEP 3: prints the executed move
+			// STEP 3: ask a human player again if the move is not valid, an
+			// artificial player would only choose it again
+			if (!board.isLegal(m)) {
+				printInvalidMove(m, curPlayer.isHumanPlayer());
+				if (curPlayer.isHumanPlayer())
+					continue;
+				aborted = true;
+				break;
+			}
+
+			// STEP 4: prints the executed move
 			printMove(m);
 
-			// STEP 4: execute chosen move
+			// STEP 5: execute chosen move
 			board.executeMove(m, true);
 
-			// STEP 5: change players
+			// STEP 6: change players
 			curPlayer = (curPlayer == p1) ? p2 : p1;
 
-			// STEP 6: go to STEP 1
+			// STEP 7: go to STEP 1
 		} while (board.getResult() == ChessUtil.NO_MATE);
 
-		// STEP 7: print the result
-		printResult();
+		// STEP 8: print the result
+		if (!aborted)
+			printResult();
 		running = false;
 	}
 
@@ -181,6 +193,17 @@ public abstract class GameUI {
 	 */
 	protected abstract void printMove(Move move);
 
+	/**
+	 * Reports a move that is not valid.
+	 * 
+	 * @param move
+	 *            the rejected move
+	 * @param again
+	 *            <tt>true</tt> if the player is asked again, <tt>false</tt>
+	 *            if the game is aborted
+	 */
+	protected abstract void printInvalidMove(Move move, boolean again);
+
 	/**
 	 * Prints the result of a game.
 	 */
@@ -51,6 +51,7 @@ import at.jku.chess.saksanturilas.board.Board;
 import at.jku.chess.saksanturilas.board.ChessException;
 import at.jku.chess.saksanturilas.board.ChessUtil;
 import at.jku.chess.saksanturilas.board.Figure;
+import at.jku.chess.saksanturilas.board.GameCursor;
 import at.jku.chess.saksanturilas.move.Move;
 import at.jku.chess.saksanturilas.player.AbstractPlayer;
 
@@ -79,6 +80,8 @@ public class SwingUI extends GameUI {
 	/** A list that represents the history of the game. */
 	@SuppressWarnings("rawtypes")
 	private JList historyList;
+	/** Moves through the positions of the game shown by the history */
+	private GameCursor historyCursor;
 
 	/** button in the tool bar */
 	private JButton undoToolButton;
@@ -156,7 +159,7 @@ public class SwingUI extends GameUI {
 			Random seed) {
 
 		updatePossibleMoves(board.getValidMoves(color));
-		undoMenu.setEnabled(board.getHistory().size() >= 2);
+		undoMenu.setEnabled(board.getRecord().countMoves() >= 2);
 		undoToolButton.setEnabled(undoMenu.isEnabled());
 
 		// initialize the count down latch with 1
@@ -268,6 +271,18 @@ public class SwingUI extends GameUI {
 		updateHistory();
 	}
 
+	@Override
+	protected void printInvalidMove(Move move, boolean again) {
+		statusLabel.setText(String.format(
+				"Move %s of player '%s' is not valid, %s.", move,
+				Figure.getFullColorName(move.getColor()),
+				again ? "choose again" : "the game is aborted"));
+		if (!again) {
+			statusLabel.setForeground(Color.RED);
+			buttonSubmit.setEnabled(false);
+		}
+	}
+
 	@SuppressWarnings("unchecked")
 	@Override
 	protected void printResult() {
@@ -536,6 +551,29 @@ public class SwingUI extends GameUI {
 				historyList = new JList();
 				{
 					historyList.setFont(MONO_FONT);
+					historyList
+							.addListSelectionListener(new ListSelectionListener() {
+
+								@Override
+								public void valueChanged(ListSelectionEvent e) {
+									// show the position after the selected move
+									int index = historyList.getSelectedIndex();
+									if (index >= 0) {
+										if (historyCursor == null)
+											historyCursor = new GameCursor(board);
+										chessPanel.showPosition(historyCursor.seek(index + 1));
+									} else {
+										chessPanel.showPosition(null);
+									}
+									// no move can be chosen while looking at the history
+									movesList.setEnabled(index < 0);
+									buttonSubmit.setEnabled(index < 0 && waitingLatch != null
+											&& waitingLatch.getCount() > 0
+											&& movesList.getSelectedIndex() >= 0);
+								}
+							});
+					historyList
+							.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
 					historyList.setCellRenderer(new DefaultListCellRenderer());
 					scrollPaneHistory.setViewportView(historyList);
 				}
@@ -573,9 +611,9 @@ public class SwingUI extends GameUI {
 
 	@SuppressWarnings("unchecked")
 	private void updateHistory() {
-		historyList.setListData(board.getHistory());
+		historyList.setListData(board.getRecord().toMoves());
 		historyList.repaint();
-		undoMenu.setEnabled(board.getHistory().size() >= 2);
+		undoMenu.setEnabled(board.getRecord().countMoves() >= 2);
 		undoToolButton.setEnabled(undoMenu.isEnabled());
 	}
 
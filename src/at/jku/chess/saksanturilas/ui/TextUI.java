@@ -166,6 +166,14 @@ public class TextUI extends GameUI {
 		System.out.println();
 	}
 
+	@Override
+	protected void printInvalidMove(Move move, boolean again) {
+		System.out.printf("%s: Move %s is not valid, %s.",
+				move.getColor() == WHITE ? "WHITE" : "BLACK", move,
+				again ? "choose again" : "the game is aborted");
+		System.out.println();
+	}
+
 	@Override
 	protected void printResult() {
 		System.out.println(board);